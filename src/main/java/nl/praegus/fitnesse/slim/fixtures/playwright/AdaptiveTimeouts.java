@@ -0,0 +1,119 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Derives per selector timeouts from the action latencies of earlier runs. The action latency of a selector is the
+ * duration of a successful fixture action using it: waiting for the element plus performing the action. The timeout of
+ * a selector is the p99 of its recorded action latencies on the page multiplied by a factor, capped by the global
+ * timeout. Missing selectors then fail fast, while slow but healthy selectors keep their headroom.
+ * <p>
+ * The timeout is applied as default timeout of the browser context for the duration of the action, and the global
+ * timeout is restored afterwards. Only actions invoked through FitNesse are covered: the multi engine fixture invokes
+ * them per engine the same way, the load test fixture calls them directly and so never uses adaptive timeouts.
+ */
+public class AdaptiveTimeouts {
+    private static final double DEFAULT_TIMEOUT = 30_000;
+    private static final int MIN_SAMPLES = 5;
+    private static final long MIN_TIMEOUT = 1_000;
+
+    private final Path storeFile;
+    private LatencyStore store;
+    private double factor = 3;
+    private String actionPageKey;
+    private String actionSelector;
+    private long actionStart;
+    private boolean inAction;
+    private BrowserContext adaptedContext;
+    private double restoreTimeout;
+
+    public AdaptiveTimeouts(Path storeFile) {
+        this.storeFile = storeFile;
+    }
+
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    public void setEnabled(boolean enabled) {
+        store = enabled ? LatencyStore.forFile(storeFile) : null;
+    }
+
+    public void setFactor(double factor) {
+        this.factor = factor;
+    }
+
+    /**
+     * Marks the start of a fixture action.
+     */
+    public void startAction() {
+        actionPageKey = null;
+        actionSelector = null;
+        actionStart = System.nanoTime();
+        inAction = true;
+    }
+
+    /**
+     * Applies the adaptive timeout for a selector to the context of the page, and remembers the selector as the one
+     * used by the current action.
+     *
+     * @param page          page the selector is used on
+     * @param selector      selector
+     * @param globalTimeout global timeout of the context in milliseconds, or null for the Playwright default
+     */
+    public void useSelector(Page page, String selector, Double globalTimeout) {
+        if (!isEnabled() || !inAction || actionSelector != null) {
+            return;
+        }
+        actionPageKey = pageKey(page.url());
+        actionSelector = selector;
+        var cap = (globalTimeout != null) ? globalTimeout : DEFAULT_TIMEOUT;
+        var p99 = store.percentile(actionPageKey, selector, 99, MIN_SAMPLES);
+        if (p99 >= 0) {
+            adaptedContext = page.context();
+            restoreTimeout = cap;
+            adaptedContext.setDefaultTimeout(Math.min(cap, Math.max(MIN_TIMEOUT, p99 * factor)));
+        }
+    }
+
+    /**
+     * Marks the end of a fixture action. Restores the global timeout and, when the action succeeded, records its
+     * action latency for the selector it used.
+     *
+     * @param succeeded whether the action succeeded
+     */
+    public void endAction(boolean succeeded) {
+        inAction = false;
+        if (adaptedContext != null) {
+            try {
+                adaptedContext.setDefaultTimeout(restoreTimeout);
+            } catch (PlaywrightException e) {
+                // context closed by the action
+            }
+            adaptedContext = null;
+        }
+        if (succeeded && isEnabled() && actionSelector != null) {
+            store.record(actionPageKey, actionSelector, (System.nanoTime() - actionStart) / 1_000_000);
+        }
+    }
+
+    public void save() {
+        if (isEnabled()) {
+            store.save();
+        }
+    }
+
+    private static String pageKey(String url) {
+        try {
+            var uri = URI.create(url);
+            return uri.getHost() != null ? uri.getHost() + uri.getPath() : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+}
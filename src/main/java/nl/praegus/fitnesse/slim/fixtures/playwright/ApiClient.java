@@ -0,0 +1,201 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.jayway.jsonpath.JsonPath;
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.options.Proxy;
+import com.microsoft.playwright.options.RequestOptions;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Sends HTTP requests that share the cookies and base url of a browser context. Single requests are sent through the
+ * context's API request context. Batched requests are sent concurrently, with the cookies of the context at the time
+ * the batch is sent and the options of the context. Cookies set by responses to batched requests are only used for
+ * the redirects of that request, they are not stored in the context.
+ */
+public class ApiClient {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private final List<Request> batch = new ArrayList<>();
+    private final List<Response> batchResponses = new ArrayList<>();
+    private Response lastResponse;
+    private int batchConcurrency = 8;
+
+    public void setHeader(String name, String value) {
+        headers.put(name, value);
+    }
+
+    public void clearHeaders() {
+        headers.clear();
+    }
+
+    public void setBatchConcurrency(int batchConcurrency) {
+        this.batchConcurrency = batchConcurrency;
+    }
+
+    /**
+     * Sends a request through the API request context of the browser context.
+     *
+     * @param context browser context to share cookies and base url with
+     * @param method  http method
+     * @param url     url, relative to the base url of the context
+     * @param body    request body, or null for none
+     * @return the response
+     */
+    public Response send(BrowserContext context, String method, String url, String body) {
+        var options = RequestOptions.create().setMethod(method);
+        requestHeaders(body).forEach(options::setHeader);
+        if (body != null) {
+            options.setData(body);
+        }
+        var response = context.request().fetch(url, options);
+        try {
+            lastResponse = new Response(response.status(), response.text(), response.headers());
+        } finally {
+            response.dispose();
+        }
+        return lastResponse;
+    }
+
+    public void addToBatch(String method, String url, String body) {
+        batch.add(new Request(method, url, body));
+    }
+
+    /**
+     * Sends all batched requests concurrently, at most batch concurrency at the same time, and clears the batch. The
+     * requests get the extra HTTP headers, HTTP credentials, proxy and HTTPS error handling of the context options,
+     * and redirects are followed with the cookies of every hop.
+     *
+     * @param context        browser context to take the cookies from
+     * @param contextOptions options the browser context was created with
+     * @param launchProxy    proxy the browser was launched with, or null
+     * @return responses, in the order the requests were added to the batch
+     */
+    public List<Response> sendBatch(BrowserContext context, Browser.NewContextOptions contextOptions, Proxy launchProxy) {
+        var client = new ContextHttpClient(contextOptions, launchProxy, context.cookies(), REQUEST_TIMEOUT);
+        List<Callable<Response>> tasks = new ArrayList<>();
+        for (Request request : batch) {
+            var uri = (contextOptions.baseURL != null) ? URI.create(contextOptions.baseURL).resolve(request.url) : URI.create(request.url);
+            var requestHeaders = requestHeaders(request.body);
+            tasks.add(() -> {
+                var response = client.send(request.method, uri, requestHeaders, request.body, REQUEST_TIMEOUT,
+                        HttpResponse.BodyHandlers.ofString());
+                return new Response(response.statusCode(), response.body(), response.headers().map().entrySet().stream()
+                        .collect(Collectors.toMap(e -> e.getKey().toLowerCase(), e -> String.join(", ", e.getValue()), (a, b) -> a)));
+            });
+        }
+        batch.clear();
+        batchResponses.clear();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(batchConcurrency, tasks.size())));
+        try {
+            for (Future<Response> response : executor.invokeAll(tasks)) {
+                batchResponses.add(response.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SlimFixtureException("Exception: interrupted while sending batch", e);
+        } catch (ExecutionException e) {
+            var cause = (e.getCause() instanceof IOException) ? e.getCause().getMessage() : String.valueOf(e.getCause());
+            throw new SlimFixtureException("Exception: batch request failed: " + cause, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return batchResponses;
+    }
+
+    public Response getLastResponse() {
+        if (lastResponse == null) {
+            throw new SlimFixtureException("Exception: no request was sent.");
+        }
+        return lastResponse;
+    }
+
+    public Response getBatchResponse(int index) {
+        if (index < 0 || index >= batchResponses.size()) {
+            throw new SlimFixtureException("Exception: no batch response with index " + index);
+        }
+        return batchResponses.get(index);
+    }
+
+    private Map<String, String> requestHeaders(String body) {
+        Map<String, String> requestHeaders = new LinkedHashMap<>();
+        if (body != null && headers.keySet().stream().noneMatch("content-type"::equalsIgnoreCase)) {
+            requestHeaders.put("Content-Type", "application/json");
+        }
+        requestHeaders.putAll(headers);
+        return requestHeaders;
+    }
+
+    private static class Request {
+        private final String method;
+        private final String url;
+        private final String body;
+
+        private Request(String method, String url, String body) {
+            this.method = method;
+            this.url = url;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Status, body and headers of a response.
+     */
+    public static class Response {
+        private final int status;
+        private final String body;
+        private final Map<String, String> headers;
+
+        Response(int status, String body, Map<String, String> headers) {
+            this.status = status;
+            this.body = body;
+            this.headers = headers;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public boolean isOk() {
+            return status >= 200 && status < 300;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase());
+        }
+
+        /**
+         * Extracts a value from the JSON body.
+         *
+         * @param jsonPath JSONPath expression
+         * @return the value as string
+         */
+        public String jsonPath(String jsonPath) {
+            try {
+                return String.valueOf((Object) JsonPath.read(body, jsonPath));
+            } catch (RuntimeException e) {
+                throw new SlimFixtureException("Exception: could not evaluate " + jsonPath + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Playwright;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A browser engine running on its own Playwright instance and thread. Playwright instances are not thread safe, so all
+ * interaction with the browser of an engine must be done through {@link BrowserEngine#submit(Callable)}.
+ */
+public class BrowserEngine {
+    private final String name;
+    private final ExecutorService executor;
+    private Playwright playwright;
+    private Browser browser;
+
+    BrowserEngine(String name) {
+        this.name = name.toLowerCase();
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "playwright-" + this.name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the Playwright instance and launches the browser on the engine's thread.
+     *
+     * @param launchOptions options to launch the browser with
+     * @return future that completes when the browser is launched
+     */
+    Future<Void> launch(BrowserType.LaunchOptions launchOptions) {
+        return executor.submit(() -> {
+            playwright = Playwright.create();
+            browser = PlaywrightSetup.browserType(playwright, name).launch(launchOptions);
+            return null;
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the browser of this engine. May only be used from within a task submitted to this engine.
+     *
+     * @return browser of this engine
+     */
+    public Browser getBrowser() {
+        return browser;
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Waits for the result of a task submitted to an engine.
+     *
+     * @param future future of the submitted task
+     * @param <T>    result type
+     * @return result of the task
+     */
+    public static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SlimFixtureException("Exception: interrupted while waiting for browser engine", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SlimFixtureException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Closes the browser and Playwright instance and stops the engine's thread.
+     */
+    void close() {
+        try {
+            await(executor.submit(() -> {
+                if (browser != null) {
+                    browser.close();
+                    PlaywrightSetup.getResourceMonitor().release(browser);
+                }
+                if (playwright != null) {
+                    playwright.close();
+                }
+                return null;
+            }));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
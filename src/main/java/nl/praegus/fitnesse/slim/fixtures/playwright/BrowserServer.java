@@ -0,0 +1,207 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.google.gson.Gson;
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.PlaywrightException;
+import com.microsoft.playwright.impl.driver.Driver;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A long-lived Playwright server on localhost, started using the bundled driver's run-server command. The server
+ * outlives the Slim JVM, so following test runs connect to it instead of starting a driver and checking the browser
+ * installation themselves.
+ * <p>
+ * The server launches a browser for every connection, with the launch options of the client, and closes it when the
+ * client disconnects. It only applies the launch options it considers safe for remote clients: channel, headless,
+ * proxy, slow motion and timeout. Connecting with other launch options, like arguments, fails instead of silently
+ * launching a differently configured browser.
+ */
+public class BrowserServer {
+    private static final int CONNECT_TIMEOUT = 200;
+    private static final long STARTUP_TIMEOUT = 30_000;
+    private static final int LOG_TAIL = 2_000;
+
+    private final int port;
+    private final Path pidFile;
+    private final Path logFile;
+
+    public BrowserServer(int port) {
+        this.port = port;
+        var tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+        this.pidFile = tempDir.resolve("playwright-browser-server-" + port + ".pid");
+        this.logFile = tempDir.resolve("playwright-browser-server-" + port + ".log");
+    }
+
+    /**
+     * Starts the server, unless a server is already listening on the port.
+     */
+    public void start() {
+        if (isAvailable()) {
+            return;
+        }
+        var processBuilder = Driver.ensureDriverInstalled(Collections.emptyMap(), false).createProcessBuilder();
+        processBuilder.command().addAll(List.of("run-server", "--port", String.valueOf(port), "--host", "localhost"));
+        processBuilder.redirectErrorStream(true).redirectOutput(logFile.toFile());
+        Process process;
+        try {
+            process = processBuilder.start();
+            Files.writeString(pidFile, String.valueOf(process.pid()));
+        } catch (IOException e) {
+            throw new SlimFixtureException("Exception: could not start browser server: " + e.getMessage(), e);
+        }
+        var deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+        while (!isAvailable()) {
+            if (!process.isAlive()) {
+                throw new SlimFixtureException("Exception: browser server exited with code " + process.exitValue() + ": " + logTail());
+            }
+            if (System.currentTimeMillis() > deadline) {
+                process.destroy();
+                throw new SlimFixtureException("Exception: browser server did not start on port " + port + ": " + logTail());
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SlimFixtureException("Exception: interrupted while starting browser server", e);
+            }
+        }
+    }
+
+    /**
+     * Stops the server started on the port by this or an earlier JVM, including the browsers it launched.
+     *
+     * @return true when a server was stopped
+     */
+    public boolean stop() {
+        if (!Files.exists(pidFile)) {
+            return false;
+        }
+        try {
+            var pid = Long.parseLong(Files.readString(pidFile).trim());
+            Files.delete(pidFile);
+            return ProcessHandle.of(pid)
+                    .filter(ProcessHandle::isAlive)
+                    .map(process -> {
+                        process.descendants().forEach(ProcessHandle::destroy);
+                        return process.destroy();
+                    })
+                    .orElse(false);
+        } catch (IOException | NumberFormatException e) {
+            throw new SlimFixtureException("Exception: could not stop browser server: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks if a server is listening on the port.
+     *
+     * @return true when a connection could be made
+     */
+    public boolean isAvailable() {
+        try (var socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", port), CONNECT_TIMEOUT);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Connects to a browser on the server.
+     *
+     * @param browserType   type of browser to connect to
+     * @param launchOptions options the server should launch the browser with
+     * @return the connected browser, or null when the server is not available
+     * @throws SlimFixtureException when the server does not apply all launch options, or the connection fails
+     */
+    public Browser connect(BrowserType browserType, BrowserType.LaunchOptions launchOptions) {
+        if (!isAvailable()) {
+            return null;
+        }
+        var unsupported = unsupportedLaunchOptions(launchOptions);
+        if (!unsupported.isEmpty()) {
+            throw new SlimFixtureException("Exception: the browser server does not apply launch options "
+                    + String.join(", ", unsupported) + ". Remove them or stop using the browser server!");
+        }
+        try {
+            return browserType.connect("ws://localhost:" + port + "/", new BrowserType.ConnectOptions()
+                    .setHeaders(Map.of("x-playwright-launch-options", new Gson().toJson(serverLaunchOptions(launchOptions)))));
+        } catch (PlaywrightException e) {
+            throw new SlimFixtureException("Exception: could not connect to browser server on port " + port + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lists the launch options that are set, but are ignored by the server for remote clients.
+     */
+    private static List<String> unsupportedLaunchOptions(BrowserType.LaunchOptions launchOptions) {
+        List<String> unsupported = new ArrayList<>();
+        if (launchOptions.args != null && !launchOptions.args.isEmpty()) {
+            unsupported.add("args");
+        }
+        if (launchOptions.ignoreAllDefaultArgs != null || launchOptions.ignoreDefaultArgs != null) {
+            unsupported.add("ignoreDefaultArgs");
+        }
+        if (launchOptions.chromiumSandbox != null) {
+            unsupported.add("chromiumSandbox");
+        }
+        if (launchOptions.firefoxUserPrefs != null) {
+            unsupported.add("firefoxUserPrefs");
+        }
+        if (launchOptions.executablePath != null) {
+            unsupported.add("executablePath");
+        }
+        if (launchOptions.downloadsPath != null) {
+            unsupported.add("downloadsPath");
+        }
+        return unsupported;
+    }
+
+    /**
+     * Gets the launch options the server accepts from a client, in the server's protocol format.
+     */
+    private static Map<String, Object> serverLaunchOptions(BrowserType.LaunchOptions launchOptions) {
+        Map<String, Object> options = new LinkedHashMap<>();
+        putIfSet(options, "channel", launchOptions.channel);
+        putIfSet(options, "timeout", launchOptions.timeout);
+        putIfSet(options, "headless", launchOptions.headless);
+        putIfSet(options, "slowMo", launchOptions.slowMo);
+        if (launchOptions.proxy != null) {
+            Map<String, String> proxy = new LinkedHashMap<>();
+            proxy.put("server", launchOptions.proxy.server);
+            putIfSet(proxy, "bypass", launchOptions.proxy.bypass);
+            putIfSet(proxy, "username", launchOptions.proxy.username);
+            putIfSet(proxy, "password", launchOptions.proxy.password);
+            options.put("proxy", proxy);
+        }
+        return options;
+    }
+
+    private static <T> void putIfSet(Map<String, T> options, String name, T value) {
+        if (value != null) {
+            options.put(name, value);
+        }
+    }
+
+    private String logTail() {
+        try {
+            var log = new String(Files.readAllBytes(logFile), StandardCharsets.UTF_8).strip();
+            return log.length() > LOG_TAIL ? log.substring(log.length() - LOG_TAIL) : log;
+        } catch (IOException e) {
+            return "no output (" + e.getMessage() + ")";
+        }
+    }
+}
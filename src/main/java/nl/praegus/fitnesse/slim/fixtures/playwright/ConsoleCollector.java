@@ -0,0 +1,202 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.ConsoleMessage;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Collects console messages, page errors and failed requests of pages in fixed size ring buffers, so diagnostics can
+ * be always on at a bounded memory cost. Counters keep counting when old entries are overwritten. A marker (the
+ * current sequence number) can be taken to cheaply check what happened since a certain step.
+ */
+public class ConsoleCollector {
+    private final Map<Page, PageLog> logs = new WeakHashMap<>();
+    private int capacity = 100;
+    private Pattern filter;
+    private String minimumLevel = "debug";
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Only keeps console messages matching the filter. Counters still count all messages.
+     *
+     * @param regex regex messages should match, or null to keep all messages
+     */
+    public void setFilter(String regex) {
+        filter = (regex == null || regex.isEmpty()) ? null : Pattern.compile(regex);
+    }
+
+    /**
+     * Only keeps console messages of at least the given level: debug, info, warning or error.
+     *
+     * @param level minimum level
+     */
+    public void setMinimumLevel(String level) {
+        minimumLevel = normalizeLevel(level);
+    }
+
+    /**
+     * Starts collecting for a page, unless already collecting for it.
+     *
+     * @param page page to collect for
+     */
+    public void collect(Page page) {
+        logs.computeIfAbsent(page, PageLog::new);
+    }
+
+    public PageLog log(Page page) {
+        return logs.computeIfAbsent(page, PageLog::new);
+    }
+
+    private static String normalizeLevel(String level) {
+        switch (level.toLowerCase()) {
+            case "warn":
+            case "warning":
+                return "warning";
+            case "error":
+            case "assert":
+                return "error";
+            case "debug":
+            case "trace":
+                return "debug";
+            default:
+                return "info";
+        }
+    }
+
+    private static int rank(String level) {
+        switch (level) {
+            case "debug":
+                return 0;
+            case "warning":
+                return 2;
+            case "error":
+                return 3;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Console, error and request failure log of a single page.
+     */
+    public class PageLog {
+        private final RingBuffer entries = new RingBuffer(capacity);
+        private long sequence;
+        private long consoleCount;
+        private long warningCount;
+        private long errorCount;
+        private long pageErrorCount;
+        private long requestFailureCount;
+        private long lastErrorSequence = -1;
+
+        private PageLog(Page page) {
+            page.onConsoleMessage(this::onConsole);
+            page.onPageError(this::onPageError);
+            page.onRequestFailed(this::onRequestFailed);
+        }
+
+        private void onConsole(ConsoleMessage message) {
+            sequence++;
+            consoleCount++;
+            var level = normalizeLevel(message.type());
+            if ("warning".equals(level)) {
+                warningCount++;
+            } else if ("error".equals(level)) {
+                errorCount++;
+                lastErrorSequence = sequence;
+            }
+            if (rank(level) >= rank(minimumLevel) && (filter == null || filter.matcher(message.text()).find())) {
+                entries.add(sequence + " [" + level + "] " + message.text());
+            }
+        }
+
+        private void onPageError(String error) {
+            sequence++;
+            pageErrorCount++;
+            lastErrorSequence = sequence;
+            entries.add(sequence + " [pageerror] " + error);
+        }
+
+        private void onRequestFailed(Request request) {
+            sequence++;
+            requestFailureCount++;
+            entries.add(sequence + " [requestfailed] " + request.method() + " " + request.url() + " " + request.failure());
+        }
+
+        /**
+         * Returns a marker for the current position in the log.
+         *
+         * @return sequence number of the last logged event
+         */
+        public long marker() {
+            return sequence;
+        }
+
+        /**
+         * Checks whether console errors or page errors occurred after a marker.
+         *
+         * @param marker marker taken earlier
+         * @return true when no errors occurred since the marker
+         */
+        public boolean noErrorsSince(long marker) {
+            return lastErrorSequence <= marker;
+        }
+
+        public List<String> entries() {
+            return entries.toList();
+        }
+
+        public long getConsoleCount() {
+            return consoleCount;
+        }
+
+        public long getWarningCount() {
+            return warningCount;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public long getPageErrorCount() {
+            return pageErrorCount;
+        }
+
+        public long getRequestFailureCount() {
+            return requestFailureCount;
+        }
+    }
+
+    private static class RingBuffer {
+        private final String[] buffer;
+        private int next;
+        private int size;
+
+        private RingBuffer(int capacity) {
+            buffer = new String[Math.max(1, capacity)];
+        }
+
+        private void add(String entry) {
+            buffer[next] = entry;
+            next = (next + 1) % buffer.length;
+            size = Math.min(size + 1, buffer.length);
+        }
+
+        private List<String> toList() {
+            List<String> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(buffer[(next - size + i + buffer.length) % buffer.length]);
+            }
+            return list;
+        }
+    }
+}
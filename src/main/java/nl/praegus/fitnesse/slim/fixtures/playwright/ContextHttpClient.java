@@ -0,0 +1,301 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.options.Cookie;
+import com.microsoft.playwright.options.HttpCredentials;
+import com.microsoft.playwright.options.HttpCredentialsSend;
+import com.microsoft.playwright.options.Proxy;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.HttpCookie;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Sends HTTP requests outside the browser the way a browser context would: with the context's extra HTTP headers,
+ * HTTP credentials, proxy and HTTPS error handling, and with the cookies of the context matched to every request.
+ * Redirects are followed one hop at a time, so every hop gets the cookies for its own url, including cookies set by
+ * earlier hops. Only HTTP proxies are supported.
+ */
+class ContextHttpClient {
+    private static final int MAX_REDIRECTS = 20;
+
+    private final HttpClient client;
+    private final Map<String, String> extraHTTPHeaders;
+    private final HttpCredentials httpCredentials;
+    private final List<Cookie> cookies;
+
+    /**
+     * Creates a client.
+     *
+     * @param contextOptions options the browser contexts are created with
+     * @param launchProxy    proxy the browser is launched with, used when the contexts have no proxy of their own
+     * @param cookies        cookies of the browser context
+     * @param connectTimeout timeout to connect to a server
+     */
+    ContextHttpClient(Browser.NewContextOptions contextOptions, Proxy launchProxy, List<Cookie> cookies, Duration connectTimeout) {
+        this.extraHTTPHeaders = contextOptions.extraHTTPHeaders != null ? contextOptions.extraHTTPHeaders : Map.of();
+        this.httpCredentials = contextOptions.httpCredentials;
+        this.cookies = cookies;
+        var builder = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(connectTimeout);
+        var proxy = contextOptions.proxy != null ? contextOptions.proxy : launchProxy;
+        if (proxy != null) {
+            configureProxy(builder, proxy);
+        }
+        if (Boolean.TRUE.equals(contextOptions.ignoreHTTPSErrors)) {
+            builder.sslContext(trustAllContext());
+        }
+        client = builder.build();
+    }
+
+    /**
+     * Sends a request and follows its redirects.
+     *
+     * @param method  http method
+     * @param uri     url to send the request to
+     * @param headers request headers, in addition to the extra HTTP headers of the context
+     * @param body    request body, or null for none
+     * @param timeout timeout of every hop
+     * @param handler handler for the body of the final response
+     * @param <T>     body type
+     * @return the final response
+     * @throws IOException          when a request fails
+     * @throws InterruptedException when interrupted while waiting for a response
+     */
+    <T> HttpResponse<T> send(String method, URI uri, Map<String, String> headers, String body, Duration timeout,
+                             HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        List<HttpCookie> responseCookies = new ArrayList<>();
+        var authorize = httpCredentials != null && httpCredentials.send == HttpCredentialsSend.ALWAYS;
+        for (int hop = 0; ; hop++) {
+            var builder = HttpRequest.newBuilder(uri).timeout(timeout)
+                    .method(method, body != null ? HttpRequest.BodyPublishers.ofString(body) : HttpRequest.BodyPublishers.noBody());
+            Map<String, String> requestHeaders = new LinkedHashMap<>(extraHTTPHeaders);
+            requestHeaders.putAll(headers);
+            requestHeaders.forEach(builder::header);
+            var cookieHeader = cookieHeader(uri, responseCookies);
+            if (!cookieHeader.isEmpty()) {
+                builder.header("Cookie", cookieHeader);
+            }
+            if (authorize && credentialsApplyTo(uri)) {
+                builder.header("Authorization", basicAuthorization());
+            }
+            var response = client.send(builder.build(), handler);
+            for (String header : response.headers().allValues("set-cookie")) {
+                responseCookies.addAll(parseCookies(header, uri));
+            }
+            if (response.statusCode() == 401 && !authorize && httpCredentials != null && credentialsApplyTo(uri)
+                    && response.headers().firstValue("www-authenticate").orElse("").toLowerCase().startsWith("basic")) {
+                authorize = true;
+                continue;
+            }
+            var location = response.headers().firstValue("location");
+            if (!isRedirect(response.statusCode()) || location.isEmpty() || hop >= MAX_REDIRECTS) {
+                return response;
+            }
+            uri = uri.resolve(location.get().trim());
+            if (response.statusCode() == 303 || (response.statusCode() <= 302 && !"HEAD".equals(method))) {
+                method = "GET";
+                body = null;
+                headers = new LinkedHashMap<>(headers);
+                headers.keySet().removeIf("content-type"::equalsIgnoreCase);
+            }
+        }
+    }
+
+    /**
+     * Gets the cookie header for a url, from the cookies of the context and the cookies set by earlier hops.
+     */
+    private String cookieHeader(URI uri, List<HttpCookie> responseCookies) {
+        var host = uri.getHost() != null ? uri.getHost() : "";
+        var path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        var secure = "https".equals(uri.getScheme());
+        Map<String, String> values = new LinkedHashMap<>();
+        cookies.stream()
+                .filter(cookie -> matches(host, path, secure, cookie.domain, cookie.path, Boolean.TRUE.equals(cookie.secure)))
+                .forEach(cookie -> values.put(cookie.name, cookie.value));
+        responseCookies.stream()
+                .filter(cookie -> matches(host, path, secure, cookie.getDomain(), cookie.getPath(), cookie.getSecure()))
+                .forEach(cookie -> {
+                    if (cookie.getMaxAge() == 0) {
+                        values.remove(cookie.getName());
+                    } else {
+                        values.put(cookie.getName(), cookie.getValue());
+                    }
+                });
+        return values.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining("; "));
+    }
+
+    /**
+     * Checks whether a cookie is sent with a request. A cookie domain starting with a dot matches the domain and its
+     * subdomains, any other domain only matches that exact host. Paths match as described in RFC 6265, section 5.1.4.
+     */
+    static boolean matches(String host, String path, boolean secureUrl, String cookieDomain, String cookiePath, boolean secureCookie) {
+        var domainMatch = cookieDomain.startsWith(".")
+                ? host.equalsIgnoreCase(cookieDomain.substring(1)) || host.toLowerCase().endsWith(cookieDomain.toLowerCase())
+                : host.equalsIgnoreCase(cookieDomain);
+        return domainMatch && pathMatches(path, cookiePath == null ? "/" : cookiePath) && (!secureCookie || secureUrl);
+    }
+
+    private static boolean pathMatches(String path, String cookiePath) {
+        return path.equals(cookiePath)
+                || (path.startsWith(cookiePath) && (cookiePath.endsWith("/") || path.charAt(cookiePath.length()) == '/'));
+    }
+
+    /**
+     * Parses a set-cookie header. A cookie without domain attribute is a host-only cookie of the url's host, a domain
+     * attribute makes it a cookie of the domain and its subdomains, stored with a leading dot like the browser does.
+     */
+    static List<HttpCookie> parseCookies(String header, URI uri) {
+        try {
+            var parsed = HttpCookie.parse(header);
+            parsed.forEach(cookie -> {
+                if (cookie.getDomain() == null) {
+                    cookie.setDomain(uri.getHost());
+                } else if (!cookie.getDomain().startsWith(".")) {
+                    cookie.setDomain("." + cookie.getDomain());
+                }
+                if (cookie.getPath() == null || !cookie.getPath().startsWith("/")) {
+                    cookie.setPath(defaultPath(uri));
+                }
+            });
+            return parsed;
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    private static String defaultPath(URI uri) {
+        var path = uri.getRawPath();
+        if (path == null || !path.startsWith("/") || path.lastIndexOf('/') == 0) {
+            return "/";
+        }
+        return path.substring(0, path.lastIndexOf('/'));
+    }
+
+    private boolean credentialsApplyTo(URI uri) {
+        if (httpCredentials.origin == null) {
+            return true;
+        }
+        var port = uri.getPort() != -1 ? ":" + uri.getPort() : "";
+        return httpCredentials.origin.equalsIgnoreCase(uri.getScheme() + "://" + uri.getHost() + port);
+    }
+
+    private String basicAuthorization() {
+        var credentials = httpCredentials.username + ":" + httpCredentials.password;
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    private static void configureProxy(HttpClient.Builder builder, Proxy proxy) {
+        var server = proxy.server.contains("://") ? URI.create(proxy.server) : URI.create("http://" + proxy.server);
+        if (!"http".equalsIgnoreCase(server.getScheme())) {
+            throw new SlimFixtureException("Exception: only HTTP proxies are supported for requests outside the browser, not " + proxy.server);
+        }
+        var address = InetSocketAddress.createUnresolved(server.getHost(), server.getPort() != -1 ? server.getPort() : 80);
+        List<String> bypass = new ArrayList<>();
+        if (proxy.bypass != null) {
+            for (String entry : proxy.bypass.split(",")) {
+                if (!entry.isBlank()) {
+                    bypass.add(entry.trim().toLowerCase());
+                }
+            }
+        }
+        builder.proxy(new ProxySelector() {
+            @Override
+            public List<java.net.Proxy> select(URI uri) {
+                var host = uri.getHost() != null ? uri.getHost().toLowerCase() : "";
+                var bypassed = bypass.stream().anyMatch(entry -> "*".equals(entry) || host.equals(entry)
+                        || (entry.startsWith(".") ? host.endsWith(entry) : host.endsWith("." + entry)));
+                return List.of(bypassed ? java.net.Proxy.NO_PROXY : new java.net.Proxy(java.net.Proxy.Type.HTTP, address));
+            }
+
+            @Override
+            public void connectFailed(URI uri, SocketAddress socketAddress, IOException e) {
+                // the request fails with the exception
+            }
+        });
+        if (proxy.username != null) {
+            builder.authenticator(new Authenticator() {
+                @Override
+                protected PasswordAuthentication getPasswordAuthentication() {
+                    if (getRequestorType() != RequestorType.PROXY) {
+                        return null;
+                    }
+                    return new PasswordAuthentication(proxy.username, proxy.password != null ? proxy.password.toCharArray() : new char[0]);
+                }
+            });
+        }
+    }
+
+    /**
+     * SSL context accepting every certificate for every host, like a context ignoring HTTPS errors.
+     */
+    private static SSLContext trustAllContext() {
+        var trustAll = new X509ExtendedTrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+            }
+
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+            }
+
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+        try {
+            var sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[]{trustAll}, new SecureRandom());
+            return sslContext;
+        } catch (GeneralSecurityException e) {
+            throw new SlimFixtureException("Exception: could not create SSL context ignoring HTTPS errors", e);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Download;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Saves downloads to the downloads folder. The download stream is written straight to disk while its SHA-256 checksum
+ * and size are computed, so large downloads are never buffered in memory. Content checks stream the saved file too,
+ * reading it as UTF-8. Downloads never overwrite earlier files: a counter is added to the name of a file that exists.
+ * Saved downloads are looked up by the file name the server suggested, so tests do not depend on the files earlier
+ * runs left in the folder.
+ */
+public class DownloadManager {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File downloadFolder;
+    private final Map<String, DownloadedFile> downloads = new LinkedHashMap<>();
+    private final List<Download> pending = new ArrayList<>();
+    private final Consumer<Download> listener = pending::add;
+    private Page collectingPage;
+    private DownloadedFile lastDownload;
+
+    public DownloadManager(File downloadFolder) {
+        this.downloadFolder = downloadFolder;
+    }
+
+    /**
+     * Performs an action and saves the download it triggers.
+     *
+     * @param page   page the download is started on
+     * @param action action triggering the download
+     * @return the saved download
+     */
+    public DownloadedFile waitForDownload(Page page, Runnable action) {
+        return save(page.waitForDownload(action));
+    }
+
+    /**
+     * Starts collecting all downloads started on a page, so several concurrent downloads can be waited for at once.
+     *
+     * @param page page to collect downloads from
+     */
+    public void startCollecting(Page page) {
+        stopCollecting();
+        collectingPage = page;
+        page.onDownload(listener);
+    }
+
+    public void stopCollecting() {
+        if (collectingPage != null) {
+            collectingPage.offDownload(listener);
+            collectingPage = null;
+        }
+        pending.clear();
+    }
+
+    /**
+     * Waits until the given number of downloads was started on the collecting page and saves them all.
+     *
+     * @param context browser context of the page
+     * @param count   number of downloads to wait for
+     * @param timeout timeout in milliseconds, or null to use the context default
+     * @return the saved downloads
+     */
+    public List<DownloadedFile> waitForDownloads(BrowserContext context, int count, Double timeout) {
+        if (collectingPage == null) {
+            throw new SlimFixtureException("Exception: not collecting downloads.");
+        }
+        var options = new BrowserContext.WaitForConditionOptions();
+        if (timeout != null) {
+            options.setTimeout(timeout);
+        }
+        try {
+            context.waitForCondition(() -> pending.size() >= count, options);
+        } catch (PlaywrightException e) {
+            throw new SlimFixtureException(String.format("Exception: %s of %s downloads started", pending.size(), count), e);
+        }
+        List<DownloadedFile> saved = new ArrayList<>();
+        for (Download download : new ArrayList<>(pending)) {
+            saved.add(save(download));
+        }
+        pending.clear();
+        return saved;
+    }
+
+    /**
+     * Gets a saved download.
+     *
+     * @param fileName file name the server suggested for the download, the last download with that name is returned,
+     *                 or null for the last saved download
+     * @return the saved download
+     */
+    public DownloadedFile getDownload(String fileName) {
+        var download = (fileName == null) ? lastDownload : downloads.get(fileName);
+        if (download == null) {
+            throw new SlimFixtureException("Exception: no download " + (fileName == null ? "saved" : fileName));
+        }
+        return download;
+    }
+
+    private DownloadedFile save(Download download) {
+        var suggestedFilename = download.suggestedFilename();
+        var target = uniqueTarget(suggestedFilename);
+        var fileName = target.getFileName().toString();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new SlimFixtureException("Exception: SHA-256 not available", e);
+        }
+        long size = 0;
+        try (InputStream in = download.createReadStream()) {
+            if (in == null) {
+                throw new SlimFixtureException("Exception: download failed: " + download.failure());
+            }
+            Files.createDirectories(target.getParent());
+            try (OutputStream out = Files.newOutputStream(target)) {
+                var buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+        } catch (IOException e) {
+            throw new SlimFixtureException("Exception: could not save download " + fileName + ": " + e.getMessage(), e);
+        }
+        lastDownload = new DownloadedFile(target, String.format("%064x", new BigInteger(1, digest.digest())), size);
+        downloads.put(suggestedFilename, lastDownload);
+        return lastDownload;
+    }
+
+    /**
+     * Gets a file in the download folder that is not used yet, adding a counter to the name when needed: report.csv,
+     * report (2).csv, report (3).csv.
+     */
+    private Path uniqueTarget(String suggestedFilename) {
+        var name = Paths.get(suggestedFilename).getFileName().toString();
+        var extensionStart = name.lastIndexOf('.');
+        var base = extensionStart > 0 ? name.substring(0, extensionStart) : name;
+        var extension = extensionStart > 0 ? name.substring(extensionStart) : "";
+        var target = new File(downloadFolder, name).toPath();
+        for (int counter = 2; Files.exists(target); counter++) {
+            target = new File(downloadFolder, base + " (" + counter + ")" + extension).toPath();
+        }
+        return target;
+    }
+
+    /**
+     * A saved download with its checksum and size.
+     */
+    public static class DownloadedFile {
+        private final Path path;
+        private final String sha256;
+        private final long size;
+
+        DownloadedFile(Path path, String sha256, long size) {
+            this.path = path;
+            this.sha256 = sha256;
+            this.size = size;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long lineCount() {
+            try (BufferedReader reader = reader()) {
+                return reader.lines().count();
+            } catch (IOException | UncheckedIOException e) {
+                throw new SlimFixtureException("Exception: could not read download: " + e.getMessage(), e);
+            }
+        }
+
+        public String firstLine() {
+            try (BufferedReader reader = reader()) {
+                return reader.readLine();
+            } catch (IOException e) {
+                throw new SlimFixtureException("Exception: could not read download: " + e.getMessage(), e);
+            }
+        }
+
+        public boolean containsLine(String text) {
+            try (BufferedReader reader = reader()) {
+                return reader.lines().anyMatch(line -> line.contains(text));
+            } catch (IOException | UncheckedIOException e) {
+                throw new SlimFixtureException("Exception: could not read download: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Reads the file as UTF-8, replacing malformed input instead of failing on it.
+         */
+        private BufferedReader reader() throws IOException {
+            return new BufferedReader(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+    }
+}
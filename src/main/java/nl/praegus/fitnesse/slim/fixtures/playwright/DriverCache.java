@@ -0,0 +1,185 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.impl.driver.Driver;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a copy of the Playwright driver that is extracted from the driver bundle on startup, so following runs can
+ * use the copy instead of extracting the driver again.
+ * <p>
+ * The cache is stored per user, in a directory only the user can access, as the cached driver is executed. A copy is
+ * only used when the manifest written after copying it completely matches the files. Playwright does not install
+ * missing browsers when it uses a driver from a directory, so that is done here, unless the
+ * PLAYWRIGHT_SKIP_BROWSER_DOWNLOAD environment variable is set.
+ */
+public class DriverCache {
+    private static final String CLI_DIR_PROPERTY = "playwright.cli.dir";
+    private static final String MANIFEST = ".complete";
+    private static final long INSTALL_TIMEOUT_MINUTES = 10;
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    private final Path cacheDir;
+
+    public DriverCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Returns the cache for the Playwright version on the classpath, in ~/.cache/ms-playwright-java.
+     *
+     * @return driver cache, or null when the Playwright version is unknown
+     */
+    public static DriverCache forCurrentVersion() {
+        var version = Driver.class.getPackage().getImplementationVersion();
+        if (version == null) {
+            return null;
+        }
+        return new DriverCache(Paths.get(System.getProperty("user.home"), ".cache", "ms-playwright-java", "driver-" + version));
+    }
+
+    /**
+     * Points Playwright to the cached driver, when it is present and no driver location was configured otherwise.
+     *
+     * @return true when the cached driver will be used
+     */
+    public boolean use() {
+        if (System.getProperty(CLI_DIR_PROPERTY) != null || !isComplete()) {
+            return false;
+        }
+        System.setProperty(CLI_DIR_PROPERTY, cacheDir.toString());
+        return true;
+    }
+
+    /**
+     * Installs the browsers of the cached driver's Playwright version that are missing, like Playwright does for the
+     * driver it extracts itself.
+     */
+    public void installBrowsers() {
+        if (isSet(System.getenv("PLAYWRIGHT_SKIP_BROWSER_DOWNLOAD")) || System.getenv("SELENIUM_REMOTE_URL") != null) {
+            return;
+        }
+        var processBuilder = Driver.ensureDriverInstalled(Collections.emptyMap(), false).createProcessBuilder();
+        processBuilder.command().add("install");
+        processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT).redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        try {
+            var process = processBuilder.start();
+            if (!process.waitFor(INSTALL_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                process.destroy();
+                throw new SlimFixtureException("Exception: timed out waiting for browsers to install");
+            }
+            if (process.exitValue() != 0) {
+                throw new SlimFixtureException("Exception: failed to install browsers, exit code: " + process.exitValue());
+            }
+        } catch (IOException e) {
+            throw new SlimFixtureException("Exception: failed to install browsers: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SlimFixtureException("Exception: interrupted while installing browsers", e);
+        }
+    }
+
+    /**
+     * Copies the driver extracted by Playwright to the cache, unless the cache is already present. Must be called
+     * after the driver was installed. Failing to store the driver is not an error, the next run will just extract the
+     * driver again.
+     */
+    public void store() {
+        if (isComplete()) {
+            return;
+        }
+        var source = Driver.ensureDriverInstalled(Collections.emptyMap(), false).driverDir();
+        Path staging = null;
+        try {
+            createPrivateDirectories(cacheDir.getParent());
+            staging = Files.createTempDirectory(cacheDir.getParent(), cacheDir.getFileName() + "-");
+            FileUtil.copyDirectory(source, staging);
+            Files.write(staging.resolve(MANIFEST), manifest(staging), StandardCharsets.UTF_8);
+            if (Files.exists(cacheDir)) {
+                // incomplete copy of an interrupted run
+                FileUtil.deleteDirectory(cacheDir);
+            }
+            Files.move(staging, cacheDir, StandardCopyOption.ATOMIC_MOVE);
+            staging = null;
+        } catch (FileAlreadyExistsException e) {
+            // stored concurrently by another run
+        } catch (IOException e) {
+            // not cached, the driver is extracted again next run
+        } finally {
+            if (staging != null) {
+                deleteStaging(staging);
+            }
+        }
+    }
+
+    private boolean isComplete() {
+        var manifestFile = cacheDir.resolve(MANIFEST);
+        try {
+            return Files.isRegularFile(manifestFile)
+                    && isPrivate(cacheDir.getParent())
+                    && Files.readAllLines(manifestFile, StandardCharsets.UTF_8).equals(manifest(cacheDir));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lists every file of a driver copy with its size, so a partial or modified copy is detected.
+     */
+    private static List<String> manifest(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().equals(MANIFEST))
+                    .map(path -> directory.relativize(path).toString().replace('\\', '/') + " " + path.toFile().length())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void createPrivateDirectories(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        if (POSIX) {
+            Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwx------"));
+        }
+    }
+
+    private static boolean isPrivate(Path directory) throws IOException {
+        if (!POSIX) {
+            return true;
+        }
+        var permissions = Files.getPosixFilePermissions(directory);
+        return Files.getOwner(directory).getName().equals(System.getProperty("user.name"))
+                && Collections.disjoint(permissions, EnumSet.of(
+                PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE,
+                PosixFilePermission.GROUP_READ, PosixFilePermission.OTHERS_READ,
+                PosixFilePermission.GROUP_EXECUTE, PosixFilePermission.OTHERS_EXECUTE));
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isEmpty() && !"0".equals(value) && !"false".equals(value);
+    }
+
+    private static void deleteStaging(Path staging) {
+        try {
+            FileUtil.deleteDirectory(staging);
+        } catch (IOException e) {
+            // leftover staging directory in the cache
+        }
+    }
+}
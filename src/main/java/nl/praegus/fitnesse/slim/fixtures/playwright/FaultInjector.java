@@ -0,0 +1,321 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.CDPSession;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+import com.microsoft.playwright.Route;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Shapes the responses of the backend: error statuses, aborted connections and truncated bodies using routing rules,
+ * and latency and limited bandwidth using network emulation. Every fault rule applies to urls matching a regex, with a
+ * probability. Rules are checked in the order they were added, the first matching rule decides the response.
+ * <p>
+ * Latency and bandwidth are emulated by the browser through the Chrome DevTools Protocol, so they don't block the
+ * thread handling the routes, and are only supported on Chromium. They apply to all requests of the pages of a context,
+ * or to the urls matching a URL pattern (https://urlpattern.spec.whatwg.org/, e.g. https://example.com/api/*). The
+ * first matching url rule applies, a rule without latency or bandwidth uses the one set for all requests. As the browser
+ * applies the conditions, every matching request gets the same latency: random latencies and probabilities would
+ * require delaying requests in a route handler, which blocks the Playwright thread.
+ */
+public class FaultInjector {
+    private final Set<BrowserContext> routedContexts = Collections.newSetFromMap(new WeakHashMap<>());
+    private final Set<BrowserContext> emulatedContexts = Collections.newSetFromMap(new WeakHashMap<>());
+    private final Map<Page, CDPSession> sessions = new WeakHashMap<>();
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<NetworkRule> networkRules = new ArrayList<>();
+    private Random random = new Random();
+    private long latencyMillis;
+    private long kilobytesPerSecond;
+
+    public void setSeed(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Sets the latency added to every request.
+     *
+     * @param millis latency in milliseconds, 0 for none
+     */
+    public void setLatency(long millis) {
+        if (millis < 0) {
+            throw new SlimFixtureException("Exception: latency can not be negative: " + millis);
+        }
+        latencyMillis = millis;
+    }
+
+    /**
+     * Sets the download and upload bandwidth.
+     *
+     * @param kilobytesPerSecond bandwidth in kilobytes per second, 0 for no limit
+     */
+    public void setBandwidth(long kilobytesPerSecond) {
+        if (kilobytesPerSecond < 0) {
+            throw new SlimFixtureException("Exception: bandwidth can not be negative: " + kilobytesPerSecond);
+        }
+        this.kilobytesPerSecond = kilobytesPerSecond;
+    }
+
+    /**
+     * Sets the latency of requests for urls matching a URL pattern.
+     *
+     * @param urlPattern absolute URL pattern, e.g. https://example.com/api/*
+     * @param millis     latency in milliseconds
+     */
+    public void addLatency(String urlPattern, long millis) {
+        if (millis < 0) {
+            throw new SlimFixtureException("Exception: latency can not be negative: " + millis);
+        }
+        networkRule(urlPattern).latencyMillis = millis;
+    }
+
+    /**
+     * Sets the download and upload bandwidth of requests for urls matching a URL pattern.
+     *
+     * @param urlPattern         absolute URL pattern, e.g. https://example.com/api/*
+     * @param kilobytesPerSecond bandwidth in kilobytes per second, 0 for no limit
+     */
+    public void addBandwidthLimit(String urlPattern, long kilobytesPerSecond) {
+        if (kilobytesPerSecond < 0) {
+            throw new SlimFixtureException("Exception: bandwidth can not be negative: " + kilobytesPerSecond);
+        }
+        networkRule(urlPattern).kilobytesPerSecond = kilobytesPerSecond;
+    }
+
+    public void addStatus(String urlRegex, int status) {
+        addRule(new Rule(Type.STATUS, urlRegex, status, null));
+    }
+
+    /**
+     * Adds a rule aborting requests.
+     *
+     * @param urlRegex  regex the url should match
+     * @param errorCode Playwright error code, e.g. failed, connectionreset, connectionrefused, timedout
+     */
+    public void addAbort(String urlRegex, String errorCode) {
+        addRule(new Rule(Type.ABORT, urlRegex, 0, errorCode));
+    }
+
+    /**
+     * Adds a rule truncating response bodies.
+     *
+     * @param urlRegex   regex the url should match
+     * @param percentage percentage of the body to keep, between 0 and 100
+     */
+    public void addTruncate(String urlRegex, int percentage) {
+        if (percentage < 0 || percentage > 100) {
+            throw new SlimFixtureException("Exception: percentage should be between 0 and 100, not " + percentage);
+        }
+        addRule(new Rule(Type.TRUNCATE, urlRegex, percentage, null));
+    }
+
+    /**
+     * Sets the probability the last added rule is applied to a matching request.
+     *
+     * @param probability probability between 0 and 1
+     */
+    public void setProbabilityOfLastRule(double probability) {
+        if (rules.isEmpty()) {
+            throw new SlimFixtureException("Exception: no fault injection rule to set the probability of.");
+        }
+        if (!(probability >= 0 && probability <= 1)) {
+            throw new SlimFixtureException("Exception: probability should be between 0 and 1, not " + probability);
+        }
+        rules.get(rules.size() - 1).probability = probability;
+    }
+
+    /**
+     * Removes all rules and stops emulating latency and bandwidth. Call {@link FaultInjector#applyTo(BrowserContext)}
+     * to restore the network conditions of an emulated context.
+     */
+    public void clear() {
+        rules.clear();
+        networkRules.clear();
+        latencyMillis = 0;
+        kilobytesPerSecond = 0;
+    }
+
+    /**
+     * Gets how often every rule was applied.
+     *
+     * @return map with a description of the rule as key and the number of requests it was applied to as value
+     */
+    public Map<String, Integer> counts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        rules.forEach(rule -> counts.put(rule.toString(), rule.applied));
+        return counts;
+    }
+
+    /**
+     * Routes the requests of a context through the rules, unless already done, and emulates the latency and bandwidth
+     * in its pages.
+     *
+     * @param context context to route the requests of
+     * @return true when the context was routed by this call
+     */
+    public boolean applyTo(BrowserContext context) {
+        if (context == null) {
+            return false;
+        }
+        if (isEmulating() || emulatedContexts.contains(context)) {
+            if (emulatedContexts.add(context)) {
+                context.onPage(this::emulate);
+            }
+            context.pages().forEach(this::emulate);
+        }
+        if (!rules.isEmpty() && routedContexts.add(context)) {
+            context.route("**/*", this::handle);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isEmulating() {
+        return latencyMillis > 0 || kilobytesPerSecond > 0 || !networkRules.isEmpty();
+    }
+
+    private NetworkRule networkRule(String urlPattern) {
+        if (urlPattern == null || !urlPattern.contains("://")) {
+            throw new SlimFixtureException("Exception: url pattern should be absolute, like https://example.com/api/*, not " + urlPattern);
+        }
+        for (NetworkRule rule : networkRules) {
+            if (rule.urlPattern.equals(urlPattern)) {
+                return rule;
+            }
+        }
+        var rule = new NetworkRule(urlPattern);
+        networkRules.add(rule);
+        return rule;
+    }
+
+    private void emulate(Page page) {
+        if (page.isClosed()) {
+            return;
+        }
+        var session = sessions.computeIfAbsent(page, p -> {
+            try {
+                return p.context().newCDPSession(p);
+            } catch (PlaywrightException e) {
+                throw new SlimFixtureException("Exception: network latency and bandwidth emulation requires Chromium: " + e.getMessage(), e);
+            }
+        });
+        var matchedConditions = new JsonArray();
+        for (NetworkRule rule : networkRules) {
+            matchedConditions.add(conditions(rule.urlPattern,
+                    rule.latencyMillis != null ? rule.latencyMillis : latencyMillis,
+                    rule.kilobytesPerSecond != null ? rule.kilobytesPerSecond : kilobytesPerSecond));
+        }
+        if (latencyMillis > 0 || kilobytesPerSecond > 0) {
+            // conditions without url pattern apply to all other requests
+            matchedConditions.add(conditions("", latencyMillis, kilobytesPerSecond));
+        }
+        var parameters = new JsonObject();
+        parameters.add("matchedNetworkConditions", matchedConditions);
+        try {
+            session.send("Network.emulateNetworkConditionsByRule", parameters);
+        } catch (PlaywrightException e) {
+            throw new SlimFixtureException("Exception: could not emulate network conditions: " + e.getMessage(), e);
+        }
+    }
+
+    private static JsonObject conditions(String urlPattern, long latencyMillis, long kilobytesPerSecond) {
+        var throughput = kilobytesPerSecond > 0 ? kilobytesPerSecond * 1024 : -1;
+        var conditions = new JsonObject();
+        conditions.addProperty("urlPattern", urlPattern);
+        conditions.addProperty("latency", latencyMillis);
+        conditions.addProperty("downloadThroughput", throughput);
+        conditions.addProperty("uploadThroughput", throughput);
+        return conditions;
+    }
+
+    private void addRule(Rule rule) {
+        rules.add(rule);
+    }
+
+    private void handle(Route route) {
+        var url = route.request().url();
+        Rule fault = null;
+        for (Rule rule : rules) {
+            if (rule.pattern.matcher(url).find() && random.nextDouble() < rule.probability) {
+                rule.applied++;
+                fault = rule;
+                break;
+            }
+        }
+        if (fault == null) {
+            route.fallback();
+        } else if (fault.type == Type.STATUS) {
+            route.fulfill(new Route.FulfillOptions().setStatus(fault.value).setBody("Injected fault: status " + fault.value));
+        } else if (fault.type == Type.ABORT) {
+            route.abort(fault.errorCode);
+        } else {
+            // fetches with the headers set by routes that fell back to this one, like the traceparent header
+            var response = route.fetch();
+            var body = response.body();
+            body = Arrays.copyOf(body, (int) ((long) body.length * fault.value / 100));
+            Map<String, String> headers = new LinkedHashMap<>(response.headers());
+            headers.remove("content-length");
+            route.fulfill(new Route.FulfillOptions().setResponse(response).setHeaders(headers).setBodyBytes(body));
+        }
+    }
+
+    private static class NetworkRule {
+        private final String urlPattern;
+        private Long latencyMillis;
+        private Long kilobytesPerSecond;
+
+        private NetworkRule(String urlPattern) {
+            this.urlPattern = urlPattern;
+        }
+    }
+
+    private enum Type {
+        STATUS, ABORT, TRUNCATE
+    }
+
+    private static class Rule {
+        private final Type type;
+        private final Pattern pattern;
+        private final int value;
+        private final String errorCode;
+        private double probability = 1;
+        private int applied;
+
+        private Rule(Type type, String urlRegex, int value, String errorCode) {
+            this.type = type;
+            this.pattern = Pattern.compile(urlRegex);
+            this.value = value;
+            this.errorCode = errorCode;
+        }
+
+        @Override
+        public String toString() {
+            String description;
+            switch (type) {
+                case STATUS:
+                    description = "status " + value;
+                    break;
+                case ABORT:
+                    description = "abort " + errorCode;
+                    break;
+                default:
+                    description = "truncate to " + value + "%";
+            }
+            return description + " for " + pattern.pattern() + (probability < 1 ? " with probability " + probability : "");
+        }
+    }
+}
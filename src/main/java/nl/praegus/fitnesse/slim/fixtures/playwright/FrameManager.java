@@ -0,0 +1,191 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.ElementHandle;
+import com.microsoft.playwright.Frame;
+import com.microsoft.playwright.Page;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of the frame scope of a page and caches resolved frames, so frame selectors are not traversed again
+ * for every action. Cached frames are dropped as soon as they are detached or navigated.
+ */
+public class FrameManager {
+    private static final String PATH_SEPARATOR = "\u0000";
+
+    private final List<String> scope = new ArrayList<>();
+    private final Map<String, Frame> resolvedFrames = new HashMap<>();
+    private final Map<String, Frame> discoveredFrames = new HashMap<>();
+    private final Consumer<Frame> invalidator = this::invalidate;
+    private Page page;
+    private boolean autoDiscovery;
+
+    /**
+     * Enters a (nested) frame. Subsequent lookups are done within this frame until it is left again.
+     *
+     * @param page          page the frame is on
+     * @param frameSelector playwright selector to locate the frame within the current scope
+     */
+    public void enterFrame(Page page, String frameSelector) {
+        bind(page);
+        scope.add(frameSelector);
+        resolve(scope.size());
+    }
+
+    /**
+     * Leaves the innermost frame of the current scope.
+     *
+     * @param page page the frame is on
+     */
+    public void leaveFrame(Page page) {
+        bind(page);
+        if (scope.isEmpty()) {
+            throw new SlimFixtureException("Exception: not in a frame.");
+        }
+        scope.remove(scope.size() - 1);
+    }
+
+    /**
+     * Leaves all frames, so subsequent lookups are done on the page itself.
+     *
+     * @param page page the frames are on
+     */
+    public void leaveAllFrames(Page page) {
+        bind(page);
+        scope.clear();
+    }
+
+    public void setAutoDiscovery(boolean autoDiscovery) {
+        this.autoDiscovery = autoDiscovery;
+        discoveredFrames.clear();
+    }
+
+    /**
+     * Returns the frame of the current scope, or the main frame when no frame was entered.
+     *
+     * @param page current page
+     * @return frame to do lookups in
+     */
+    public Frame currentFrame(Page page) {
+        bind(page);
+        return resolve(scope.size());
+    }
+
+    /**
+     * Returns a frame within the current scope.
+     *
+     * @param page          current page
+     * @param frameSelector playwright selector to locate the frame within the current scope
+     * @return resolved frame
+     */
+    public Frame frame(Page page, String frameSelector) {
+        bind(page);
+        var path = new ArrayList<>(scope);
+        path.add(frameSelector);
+        return resolve(path, path.size());
+    }
+
+    /**
+     * Returns the frame to locate a selector in. When auto discovery is enabled the frame in which the selector was
+     * last found is used, or all frames of the page are searched when it is not known yet.
+     *
+     * @param page     current page
+     * @param selector playwright selector to locate
+     * @return frame to locate the selector in
+     */
+    public Frame frameFor(Page page, String selector) {
+        var current = currentFrame(page);
+        if (!autoDiscovery) {
+            return current;
+        }
+        var known = discoveredFrames.get(selector);
+        if (known != null && !known.isDetached()) {
+            return known;
+        }
+        if (current.locator(selector).count() > 0) {
+            discoveredFrames.put(selector, current);
+            return current;
+        }
+        for (Frame candidate : page.frames()) {
+            if (candidate != current && candidate.locator(selector).count() > 0) {
+                discoveredFrames.put(selector, candidate);
+                return candidate;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns a description of the current frame scope. Useful for fixture debugging.
+     *
+     * @return frame selectors of the current scope, outermost first
+     */
+    public String getScope() {
+        return scope.toString();
+    }
+
+    private void bind(Page newPage) {
+        if (newPage == page) {
+            return;
+        }
+        if (page != null) {
+            page.offFrameDetached(invalidator);
+            page.offFrameNavigated(invalidator);
+        }
+        scope.clear();
+        resolvedFrames.clear();
+        discoveredFrames.clear();
+        page = newPage;
+        page.onFrameDetached(invalidator);
+        page.onFrameNavigated(invalidator);
+    }
+
+    private Frame resolve(int depth) {
+        return resolve(scope, depth);
+    }
+
+    private Frame resolve(List<String> path, int depth) {
+        var frame = page.mainFrame();
+        for (int i = 0; i < depth; i++) {
+            var key = String.join(PATH_SEPARATOR, path.subList(0, i + 1));
+            var cached = resolvedFrames.get(key);
+            if (cached == null || cached.isDetached()) {
+                cached = contentFrame(frame, path.get(i));
+                resolvedFrames.put(key, cached);
+            }
+            frame = cached;
+        }
+        return frame;
+    }
+
+    private Frame contentFrame(Frame parent, String frameSelector) {
+        ElementHandle element = parent.locator(frameSelector).elementHandle();
+        try {
+            var frame = element.contentFrame();
+            if (frame == null) {
+                throw new SlimFixtureException("Exception: element is not a frame: " + frameSelector);
+            }
+            return frame;
+        } finally {
+            element.dispose();
+        }
+    }
+
+    private void invalidate(Frame frame) {
+        var stalePaths = new ArrayList<String>();
+        resolvedFrames.forEach((path, resolved) -> {
+            if (resolved == frame) {
+                stalePaths.add(path);
+            }
+        });
+        for (String stalePath : stalePaths) {
+            resolvedFrames.keySet().removeIf(path -> path.equals(stalePath) || path.startsWith(stalePath + PATH_SEPARATOR));
+        }
+        discoveredFrames.values().removeIf(discovered -> discovered == frame);
+    }
+}
@@ -0,0 +1,81 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Locator;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Library of helper functions installed in every frame of a browser context using an init script, so fixture methods
+ * can read elements with a single short call instead of sending and compiling their own script every time.
+ * <p>
+ * The library is versioned: a frame that already has the same or a newer version keeps it. Documents that were loaded
+ * before the library was installed in their context get it on first use.
+ */
+public class HelperRuntime {
+    private static final int VERSION = 1;
+    private static final String LIBRARY = "(() => {\n" +
+            "  const version = " + VERSION + ";\n" +
+            "  if (window.__fitnesseHelpers && window.__fitnesseHelpers.version >= version) return;\n" +
+            "  window.__fitnesseHelpers = {\n" +
+            "    version,\n" +
+            "    valueOf: e => {\n" +
+            "      switch (e.tagName.toLowerCase()) {\n" +
+            "        case 'input':\n" +
+            "        case 'textarea':\n" +
+            "        case 'select':\n" +
+            "          return e.value;\n" +
+            "        case 'button':\n" +
+            "        case 'option':\n" +
+            "        case 'text':\n" +
+            "          return e.innerHTML;\n" +
+            "        default:\n" +
+            "          return e.innerText;\n" +
+            "      }\n" +
+            "    },\n" +
+            "    selectedLabel: e => e.selectedIndex >= 0 ? e.options[e.selectedIndex].innerText : null\n" +
+            "  };\n" +
+            "})()";
+
+    private final Set<BrowserContext> installedContexts = Collections.newSetFromMap(new WeakHashMap<>());
+    private final Map<String, String> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Installs the library in all frames of a context that are loaded from now on.
+     *
+     * @param context context to install the library in
+     */
+    public void install(BrowserContext context) {
+        if (installedContexts.add(context)) {
+            context.addInitScript(LIBRARY);
+        }
+    }
+
+    /**
+     * Calls a helper function with an element as argument.
+     *
+     * @param locator locator of the element
+     * @param helper  name of the helper function
+     * @return result of the helper function
+     */
+    public Object call(Locator locator, String helper) {
+        var call = calls.computeIfAbsent(helper,
+                name -> "e => window.__fitnesseHelpers ? [window.__fitnesseHelpers." + name + "(e)] : null");
+        var result = locator.evaluate(call);
+        if (result == null) {
+            locator.evaluate("() => " + LIBRARY);
+            result = locator.evaluate(call);
+        }
+        return ((List<?>) result).get(0);
+    }
+
+    public String callForString(Locator locator, String helper) {
+        var result = call(locator, helper);
+        return result != null ? result.toString() : null;
+    }
+}
@@ -0,0 +1,119 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * File based store of the action latencies of selectors across runs. For every page and selector the most recent samples
+ * are kept. The store is loaded once and written back when the JVM exits, or when saved explicitly.
+ */
+public class LatencyStore {
+    private static final int MAX_SAMPLES = 200;
+    private static final Map<Path, LatencyStore> stores = new HashMap<>();
+
+    private final Path file;
+    private final Map<String, Deque<Long>> samples = new HashMap<>();
+    private boolean dirty;
+
+    private LatencyStore(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Returns the store for a file, loading it on first use.
+     *
+     * @param file file the latencies are stored in
+     * @return the store
+     */
+    public static synchronized LatencyStore forFile(Path file) {
+        return stores.computeIfAbsent(file.toAbsolutePath(), path -> {
+            var store = new LatencyStore(path);
+            Runtime.getRuntime().addShutdownHook(new Thread(store::save, "latency-store-save"));
+            return store;
+        });
+    }
+
+    public synchronized void record(String pageKey, String selector, long latencyInMilliseconds) {
+        var keySamples = samples.computeIfAbsent(key(pageKey, selector), k -> new ArrayDeque<>());
+        keySamples.addLast(latencyInMilliseconds);
+        if (keySamples.size() > MAX_SAMPLES) {
+            keySamples.removeFirst();
+        }
+        dirty = true;
+    }
+
+    /**
+     * Returns a percentile of the recorded latencies.
+     *
+     * @param pageKey    page the selector was used on
+     * @param selector   selector
+     * @param percentile percentile, between 0 and 100
+     * @param minSamples minimum number of samples required
+     * @return the percentile in milliseconds, or -1 when there are not enough samples
+     */
+    public synchronized long percentile(String pageKey, String selector, double percentile, int minSamples) {
+        var keySamples = samples.get(key(pageKey, selector));
+        if (keySamples == null || keySamples.size() < minSamples) {
+            return -1;
+        }
+        var sorted = keySamples.stream().mapToLong(Long::longValue).sorted().toArray();
+        var index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            var tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Deque<Long>> entry : samples.entrySet()) {
+                    writer.write(entry.getKey());
+                    writer.write('\t');
+                    writer.write(entry.getValue().stream().map(String::valueOf).reduce((a, b) -> a + "," + b).orElse(""));
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            // latencies of this run are lost, timeouts are learned again
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                var separator = line.lastIndexOf('\t');
+                if (separator > 0 && separator < line.length() - 1) {
+                    var keySamples = new ArrayDeque<Long>();
+                    Arrays.stream(line.substring(separator + 1).split(",")).map(Long::valueOf).forEach(keySamples::addLast);
+                    samples.put(line.substring(0, separator), keySamples);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            samples.clear();
+        }
+    }
+
+    private static String key(String pageKey, String selector) {
+        return (pageKey + '\t' + selector).replace('\n', ' ');
+    }
+}
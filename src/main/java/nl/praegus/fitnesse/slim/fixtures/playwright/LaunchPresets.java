@@ -0,0 +1,208 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Playwright;
+import com.sun.net.httpserver.HttpServer;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Named sets of browser launch options for common environments, and a benchmark comparing them on the current
+ * machine. The arguments of the presets are Chromium arguments.
+ * <p>
+ * The benchmark launches the browser with every preset a number of times, and loads a static page from a local web
+ * server. It measures the launch time, the page load time and the time until the first contentful paint.
+ */
+public final class LaunchPresets {
+    private static final List<String> CI_ARGS = List.of(
+            "--disable-dev-shm-usage",
+            "--disable-extensions",
+            "--disable-background-networking",
+            "--no-first-run");
+    private static final Map<String, Preset> presets = new LinkedHashMap<>();
+    private static final String BENCHMARK_PAGE = "<!DOCTYPE html><html><head><title>benchmark</title>" +
+            "<style>body{font-family:sans-serif}div{display:inline-block;width:40px;height:40px;margin:2px;background:#4a90d9}</style>" +
+            "</head><body><h1>Launch benchmark</h1><p>First contentful paint reference page.</p>" +
+            "<script>for(let i=0;i<500;i++){document.body.appendChild(document.createElement('div'));}</script>" +
+            "</body></html>";
+    private static final String FIRST_PAINT = "() => {\n" +
+            "  const paint = performance.getEntriesByName('first-contentful-paint')[0] || performance.getEntriesByName('first-paint')[0];\n" +
+            "  return paint ? paint.startTime : -1;\n" +
+            "}";
+
+    static {
+        presets.put("default", new Preset(null, Collections.emptyList()));
+        presets.put("ci", new Preset(null, CI_ARGS));
+        presets.put("ci-no-gpu", new Preset(null, with(CI_ARGS, "--disable-gpu", "--disable-gpu-compositing")));
+        presets.put("low-memory", new Preset(null, with(CI_ARGS, "--renderer-process-limit=2", "--js-flags=--max-old-space-size=512")));
+        presets.put("new-headless", new Preset("chromium", CI_ARGS));
+    }
+
+    private LaunchPresets() {
+    }
+
+    /**
+     * Applies a preset to launch options, replacing their arguments and channel.
+     *
+     * @param name    name of the preset
+     * @param options launch options to apply the preset to
+     */
+    public static void apply(String name, BrowserType.LaunchOptions options) {
+        var preset = presets.get(name.trim().toLowerCase());
+        if (preset == null) {
+            throw new SlimFixtureException("Unsupported launch preset. Use one of " + String.join(", ", presets.keySet()) + "!");
+        }
+        options.setArgs(new ArrayList<>(preset.args));
+        options.setChannel(preset.channel);
+    }
+
+    /**
+     * Describes the available presets.
+     *
+     * @return map with the preset name as key and its channel and arguments as value
+     */
+    public static Map<String, String> describe() {
+        Map<String, String> descriptions = new LinkedHashMap<>();
+        presets.forEach((name, preset) -> descriptions.put(name,
+                (preset.channel != null ? "channel " + preset.channel + " " : "") + String.join(" ", preset.args)));
+        return descriptions;
+    }
+
+    /**
+     * Benchmarks presets, fastest first.
+     *
+     * @param playwright  Playwright instance to launch the browsers with
+     * @param browserName name of the browser to launch
+     * @param base        launch options the presets are applied to, e.g. for headless and proxy
+     * @param names       names of the presets
+     * @param runs        number of launches per preset
+     * @return map with the preset name as key and its median timings as value
+     */
+    public static Map<String, String> benchmark(Playwright playwright, String browserName, BrowserType.LaunchOptions base,
+                                                List<String> names, int runs) {
+        HttpServer server;
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new SlimFixtureException("Exception: could not start benchmark web server: " + e.getMessage(), e);
+        }
+        var body = BENCHMARK_PAGE.getBytes(StandardCharsets.UTF_8);
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            var url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+            var browserType = PlaywrightSetup.browserType(playwright, browserName);
+            List<Result> results = new ArrayList<>();
+            for (String name : names) {
+                var options = new BrowserType.LaunchOptions()
+                        .setHeadless(base.headless == null || base.headless)
+                        .setProxy(base.proxy);
+                apply(name, options);
+                results.add(measure(name.trim().toLowerCase(), browserType, options, url, runs));
+            }
+            results.sort(Comparator.comparingDouble(Result::rank));
+            Map<String, String> summary = new LinkedHashMap<>();
+            results.forEach(result -> summary.put(result.preset, result.toString()));
+            return summary;
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static Result measure(String preset, BrowserType browserType, BrowserType.LaunchOptions options, String url, int runs) {
+        var result = new Result(preset, runs);
+        for (int i = 0; i < runs; i++) {
+            try {
+                var start = System.nanoTime();
+                var browser = browserType.launch(options);
+                try {
+                    var launched = System.nanoTime();
+                    var page = browser.newPage();
+                    page.navigate(url);
+                    var loaded = System.nanoTime();
+                    result.launch.add((launched - start) / 1_000_000.0);
+                    result.load.add((loaded - launched) / 1_000_000.0);
+                    result.firstPaint.add(((Number) page.evaluate(FIRST_PAINT)).doubleValue());
+                } finally {
+                    browser.close();
+                }
+            } catch (RuntimeException e) {
+                result.failures++;
+                result.error = String.valueOf(e.getMessage()).split("\n")[0];
+            }
+        }
+        return result;
+    }
+
+    private static List<String> with(List<String> args, String... extra) {
+        List<String> combined = new ArrayList<>(args);
+        combined.addAll(Arrays.asList(extra));
+        return Collections.unmodifiableList(combined);
+    }
+
+    private static double median(List<Double> values) {
+        if (values.isEmpty()) {
+            return -1;
+        }
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static class Preset {
+        private final String channel;
+        private final List<String> args;
+
+        private Preset(String channel, List<String> args) {
+            this.channel = channel;
+            this.args = args;
+        }
+    }
+
+    private static class Result {
+        private final String preset;
+        private final int runs;
+        private final List<Double> launch = new ArrayList<>();
+        private final List<Double> load = new ArrayList<>();
+        private final List<Double> firstPaint = new ArrayList<>();
+        private int failures;
+        private String error;
+
+        private Result(String preset, int runs) {
+            this.preset = preset;
+            this.runs = runs;
+        }
+
+        private double rank() {
+            return failures > 0 ? Double.MAX_VALUE : median(launch) + median(load);
+        }
+
+        @Override
+        public String toString() {
+            if (launch.isEmpty()) {
+                return "failed: " + error;
+            }
+            var summary = String.format("launch %.0f ms, load %.0f ms, first paint %.0f ms (%d/%d runs)",
+                    median(launch), median(load), median(firstPaint), runs - failures, runs);
+            return failures > 0 ? summary + ", unstable: " + error : summary;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixture;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FitNesse query table listing the results of the last link check done using
+ * {@link PlaywrightFixture#checkLinksOnCurrentPage()}.
+ * <p>
+ * Usage:
+ * <pre>
+ * {@code
+ *
+ * |script                  |playwright fixture         |
+ * |navigate to             |https://praegus.nl/        |
+ * |check                   |check links on current page|0|
+ *
+ * |query:link check results|broken           |
+ * |url                     |status|found on |
+ *
+ * }
+ * </pre>
+ * The filter is one of: all, broken or slow.
+ */
+public class LinkCheckResults extends SlimFixture {
+    private final String filter;
+
+    public LinkCheckResults() {
+        this("all");
+    }
+
+    public LinkCheckResults(String filter) {
+        this.filter = filter.trim().toLowerCase();
+        if (!Arrays.asList("all", "broken", "slow").contains(this.filter)) {
+            throw new SlimFixtureException("Unsupported filter. Use all, broken or slow!");
+        }
+    }
+
+    public List<Object> query() {
+        List<Object> rows = new ArrayList<>();
+        for (LinkChecker.Result result : LinkChecker.getLastResults()) {
+            if ("broken".equals(filter) && !result.isBroken() || "slow".equals(filter) && !result.isSlow()) {
+                continue;
+            }
+            rows.add(Arrays.asList(
+                    Arrays.asList("url", result.getUrl()),
+                    Arrays.asList("type", result.getType()),
+                    Arrays.asList("status", String.valueOf(result.getStatus())),
+                    Arrays.asList("duration", String.valueOf(result.getDurationMillis())),
+                    Arrays.asList("found on", result.getFoundOn()),
+                    Arrays.asList("error", result.getError() != null ? result.getError() : "")));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,327 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.options.Proxy;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.regex.Pattern;
+
+/**
+ * Checks the links and assets of a page concurrently over HTTP, the way the browser context would request them, instead
+ * of navigating to them in the browser. Links to pages on the same host are followed up to a maximum depth.
+ * <p>
+ * Every url is actually requested with GET, so links with side effects, like a logout link, have them. Exclude such
+ * urls using a regex, or only check urls on the origin of the page.
+ * <p>
+ * Requests are sent using {@link ContextHttpClient}, with the extra HTTP headers, credentials, proxy and HTTPS error
+ * handling of the context, and its cookies as taken once, when the check starts. Redirects are followed per hop. The
+ * number of requests in flight is bounded, and requests to the same host are spaced to stay within a rate limit.
+ */
+public class LinkChecker {
+    private static final String COLLECT = "() => {\n" +
+            "  const urls = [];\n" +
+            "  document.querySelectorAll('a[href]').forEach(e => urls.push({url: e.href, type: 'link'}));\n" +
+            "  document.querySelectorAll('img[src], script[src], source[src], video[src], audio[src], iframe[src]')\n" +
+            "    .forEach(e => urls.push({url: e.src, type: e.tagName.toLowerCase()}));\n" +
+            "  document.querySelectorAll('link[href]').forEach(e => urls.push({url: e.href, type: e.rel || 'link'}));\n" +
+            "  return urls;\n" +
+            "}";
+    private static final Pattern HTML_URL = Pattern.compile("(?:href|src)\\s*=\\s*[\"']([^\"'#]+)", Pattern.CASE_INSENSITIVE);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static List<Result> lastResults = Collections.emptyList();
+
+    private int parallelism = 8;
+    private double requestsPerSecondPerHost = 10;
+    private int depth;
+    private long slowThresholdMillis = 1_000;
+    private Pattern excludePattern;
+    private boolean sameOriginOnly;
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setRequestsPerSecondPerHost(double requestsPerSecondPerHost) {
+        this.requestsPerSecondPerHost = requestsPerSecondPerHost;
+    }
+
+    /**
+     * Sets how deep links to pages on the same host are followed. 0 only checks the urls on the page itself.
+     *
+     * @param depth maximum depth
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public void setSlowThresholdMillis(long slowThresholdMillis) {
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    /**
+     * Sets a regex of urls that are not requested.
+     *
+     * @param urlRegex regex of the urls to skip, or null to check all urls
+     */
+    public void setExcludePattern(String urlRegex) {
+        excludePattern = urlRegex == null || urlRegex.isEmpty() ? null : Pattern.compile(urlRegex);
+    }
+
+    /**
+     * Sets whether only urls on the origin of the checked page are requested.
+     *
+     * @param sameOriginOnly true to skip urls on other origins
+     */
+    public void setSameOriginOnly(boolean sameOriginOnly) {
+        this.sameOriginOnly = sameOriginOnly;
+    }
+
+    /**
+     * Checks all links and assets of a page.
+     *
+     * @param context        context to take the cookies from
+     * @param page           page to collect the urls from
+     * @param contextOptions options the context was created with
+     * @param launchProxy    proxy the browser was launched with
+     * @return results, in the order the urls were found
+     */
+    @SuppressWarnings("unchecked")
+    public List<Result> check(BrowserContext context, Page page, Browser.NewContextOptions contextOptions, Proxy launchProxy) {
+        var startUri = URI.create(page.url());
+        var client = new ContextHttpClient(contextOptions, launchProxy, context.cookies(), REQUEST_TIMEOUT);
+        var found = (List<Map<String, String>>) page.evaluate(COLLECT);
+        var run = new Run(startUri, client);
+        try {
+            for (Map<String, String> url : found) {
+                run.submit(url.get("url"), url.get("type"), page.url(), 0);
+            }
+            run.awaitDone();
+        } finally {
+            run.executor.shutdownNow();
+        }
+        var results = new ArrayList<>(run.results.values());
+        results.sort((a, b) -> Long.compare(a.order, b.order));
+        synchronized (LinkChecker.class) {
+            lastResults = Collections.unmodifiableList(results);
+        }
+        return lastResults;
+    }
+
+    /**
+     * Gets the results of the last check in this JVM, e.g. for {@link LinkCheckResults}.
+     *
+     * @return results of the last check
+     */
+    public static synchronized List<Result> getLastResults() {
+        return lastResults;
+    }
+
+    private static String normalize(String url) {
+        var hash = url.indexOf('#');
+        return hash >= 0 ? url.substring(0, hash) : url;
+    }
+
+    private static String origin(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+    }
+
+    /**
+     * State of a single check.
+     */
+    private class Run {
+        private final URI startUri;
+        private final ContextHttpClient client;
+        private final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            var thread = new Thread(runnable, "link-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private final Set<String> seen = ConcurrentHashMap.newKeySet();
+        private final Map<String, Result> results = new ConcurrentHashMap<>();
+        private final Map<String, Long> nextRequestPerHost = new HashMap<>();
+        private final Phaser pending = new Phaser(1);
+        private long order;
+
+        private Run(URI startUri, ContextHttpClient client) {
+            this.startUri = startUri;
+            this.client = client;
+        }
+
+        private void submit(String url, String type, String foundOn, int level) {
+            if (url == null || !(url.startsWith("http://") || url.startsWith("https://"))) {
+                return;
+            }
+            var normalized = normalize(url);
+            if (isSkipped(normalized) || !seen.add(normalized)) {
+                return;
+            }
+            long position;
+            synchronized (this) {
+                position = order++;
+            }
+            pending.register();
+            executor.submit(() -> {
+                try {
+                    results.put(normalized, request(normalized, type, foundOn, level, position));
+                } finally {
+                    pending.arriveAndDeregister();
+                }
+            });
+        }
+
+        private boolean isSkipped(String url) {
+            if (excludePattern != null && excludePattern.matcher(url).find()) {
+                return true;
+            }
+            try {
+                return sameOriginOnly && !origin(URI.create(url)).equals(origin(startUri));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        private void awaitDone() {
+            pending.arriveAndAwaitAdvance();
+        }
+
+        private Result request(String url, String type, String foundOn, int level, long position) {
+            URI uri;
+            try {
+                uri = URI.create(url);
+            } catch (IllegalArgumentException e) {
+                return new Result(url, type, foundOn, -1, 0, "invalid url", position, slowThresholdMillis);
+            }
+            var follow = level < depth && "link".equals(type) && startUri.getHost() != null && startUri.getHost().equals(uri.getHost());
+            waitForRateLimit(uri.getHost());
+            var start = System.nanoTime();
+            try {
+                if (follow) {
+                    var response = client.send("GET", uri, Map.of(), null, REQUEST_TIMEOUT, HttpResponse.BodyHandlers.ofString());
+                    var duration = (System.nanoTime() - start) / 1_000_000;
+                    var contentType = response.headers().firstValue("content-type").orElse("");
+                    if (contentType.contains("html")) {
+                        var matcher = HTML_URL.matcher(response.body());
+                        while (matcher.find()) {
+                            var linked = resolve(response.uri(), matcher.group(1));
+                            if (linked != null) {
+                                submit(linked, matcher.group(0).toLowerCase().startsWith("href") ? "link" : "asset", url, level + 1);
+                            }
+                        }
+                    }
+                    return new Result(url, type, foundOn, response.statusCode(), duration, null, position, slowThresholdMillis);
+                }
+                var response = client.send("GET", uri, Map.of(), null, REQUEST_TIMEOUT, HttpResponse.BodyHandlers.discarding());
+                var duration = (System.nanoTime() - start) / 1_000_000;
+                return new Result(url, type, foundOn, response.statusCode(), duration, null, position, slowThresholdMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Result(url, type, foundOn, -1, 0, "interrupted", position, slowThresholdMillis);
+            } catch (Exception e) {
+                var duration = (System.nanoTime() - start) / 1_000_000;
+                return new Result(url, type, foundOn, -1, duration, String.valueOf(e.getMessage() != null ? e.getMessage() : e), position, slowThresholdMillis);
+            }
+        }
+
+        private void waitForRateLimit(String host) {
+            if (requestsPerSecondPerHost <= 0) {
+                return;
+            }
+            var interval = (long) (1000 / requestsPerSecondPerHost);
+            long wait;
+            synchronized (nextRequestPerHost) {
+                var now = System.currentTimeMillis();
+                var next = Math.max(now, nextRequestPerHost.getOrDefault(host, now));
+                nextRequestPerHost.put(host, next + interval);
+                wait = next - now;
+            }
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SlimFixtureException("Exception: interrupted while checking links", e);
+                }
+            }
+        }
+
+        private String resolve(URI base, String reference) {
+            try {
+                return base.resolve(reference.trim()).toString();
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Result of checking a single url.
+     */
+    public static class Result {
+        private final String url;
+        private final String type;
+        private final String foundOn;
+        private final int status;
+        private final long durationMillis;
+        private final String error;
+        private final long order;
+        private final boolean slow;
+
+        private Result(String url, String type, String foundOn, int status, long durationMillis, String error, long order, long slowThresholdMillis) {
+            this.url = url;
+            this.type = type;
+            this.foundOn = foundOn;
+            this.status = status;
+            this.durationMillis = durationMillis;
+            this.error = error;
+            this.order = order;
+            this.slow = durationMillis > slowThresholdMillis;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getFoundOn() {
+            return foundOn;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isBroken() {
+            return status < 200 || status >= 400;
+        }
+
+        public boolean isSlow() {
+            return slow;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixture;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * FitNesse fixture replaying a sequence of {@link PlaywrightFixture} actions as a small browser level load test.
+ * Every virtual user gets its own browser context. The virtual users are spread over a number of browser instances,
+ * each running on its own Playwright instance and thread. As Playwright instances are not thread safe, the actions of
+ * the users on the same browser instance are interleaved, so the number of browser instances bounds the number of
+ * actions executing at the same time.
+ * <p>
+ * Latencies are the execution times of the actions. The report, with latency percentiles and error rates per step, is
+ * written to the load-tests folder in the FitNesse files section. A step equal to an earlier step is reported with
+ * its occurrence appended, e.g. "click text=Next #2". The actions are called directly on the fixtures of the virtual
+ * users, not through FitNesse, so adaptive timeouts, span export and memory monitoring don't apply to them.
+ * <p>
+ * Usage:
+ * <pre>
+ * {@code
+ *
+ * |script                  |load test fixture                  |
+ * |set virtual users       |10                                 |
+ * |set browser instances   |2                                  |
+ * |set ramp up seconds     |5                                  |
+ * |set think time milliseconds|500                             |
+ * |set pacing milliseconds |5000                               |
+ * |set iterations          |3                                  |
+ * |add step                |navigate to|with|http://localhost:8080/|
+ * |add step                |click      |with|text=Login          |
+ * |show                    |run load test                      |
+ * |check                   |error rate |0.0                    |
+ * |check                   |latency percentile|95|< 2000       |
+ *
+ * }
+ * </pre>
+ */
+public class LoadTestFixture extends SlimFixture {
+    private final List<Step> steps = new ArrayList<>();
+    private final LoadTestStatistics statistics = new LoadTestStatistics();
+    private final Path reportFolder = Paths.get(getEnvironment().getFitNesseFilesSectionDir(), "load-tests");
+    private String browserName = "chromium";
+    private int virtualUsers = 1;
+    private int browserInstances = 1;
+    private long rampUpMillis;
+    private long thinkTimeMillis;
+    private long pacingMillis;
+    private int iterations = 1;
+    private long maxDurationMillis;
+
+    public void setBrowser(String browserName) {
+        this.browserName = browserName;
+    }
+
+    public void setVirtualUsers(int virtualUsers) {
+        this.virtualUsers = virtualUsers;
+    }
+
+    public void setBrowserInstances(int browserInstances) {
+        this.browserInstances = browserInstances;
+    }
+
+    /**
+     * Sets the time over which the start of the virtual users is spread.
+     *
+     * @param seconds ramp up time in seconds
+     */
+    public void setRampUpSeconds(double seconds) {
+        rampUpMillis = (long) (seconds * 1000);
+    }
+
+    /**
+     * Sets the time a virtual user waits between two steps.
+     *
+     * @param milliseconds think time in milliseconds
+     */
+    public void setThinkTimeMilliseconds(long milliseconds) {
+        thinkTimeMillis = milliseconds;
+    }
+
+    /**
+     * Sets the minimum time between the starts of two iterations of a virtual user. When an iteration takes longer,
+     * the next iteration starts immediately.
+     *
+     * @param milliseconds pacing in milliseconds
+     */
+    public void setPacingMilliseconds(long milliseconds) {
+        pacingMillis = milliseconds;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * Sets the maximum duration of the load test. Virtual users don't start new steps after this time.
+     *
+     * @param seconds maximum duration in seconds, 0 for no maximum
+     */
+    public void setMaxDurationSeconds(double seconds) {
+        maxDurationMillis = (long) (seconds * 1000);
+    }
+
+    /**
+     * Adds a step without arguments.
+     * Usage: | add step | take screenshot |
+     *
+     * @param action name of the {@link PlaywrightFixture} action
+     */
+    public void addStep(String action) {
+        addStepWithArguments(action);
+    }
+
+    /**
+     * Adds a step with one argument.
+     * Usage: | add step | click | with | text=Login |
+     *
+     * @param action   name of the {@link PlaywrightFixture} action
+     * @param argument argument of the action
+     */
+    public void addStepWith(String action, String argument) {
+        addStepWithArguments(action, argument);
+    }
+
+    /**
+     * Adds a step with two arguments.
+     * Usage: | add step | enter | with | admin | and | id=username |
+     *
+     * @param action         name of the {@link PlaywrightFixture} action
+     * @param firstArgument  first argument of the action
+     * @param secondArgument second argument of the action
+     */
+    public void addStepWithAnd(String action, String firstArgument, String secondArgument) {
+        addStepWithArguments(action, firstArgument, secondArgument);
+    }
+
+    /**
+     * Removes all steps and the statistics of the last load test.
+     */
+    public void clearSteps() {
+        steps.clear();
+        statistics.clear();
+    }
+
+    /**
+     * Runs the load test and writes its report.
+     *
+     * @return link to the report
+     */
+    public String runLoadTest() {
+        if (steps.isEmpty()) {
+            throw new SlimFixtureException("Exception: no steps to run. Use add step to add them.");
+        }
+        List<BrowserEngine> engines = new ArrayList<>();
+        try {
+            for (int i = 0; i < browserInstances; i++) {
+                var engine = new BrowserEngine(browserName);
+                engines.add(engine);
+                BrowserEngine.await(engine.launch(PlaywrightSetup.getLaunchOptions()));
+            }
+            var labels = steps.stream().map(step -> step.label).collect(Collectors.toList());
+            labels.forEach(statistics::addStep);
+            var scheduler = new LoadTestScheduler(statistics, labels);
+            scheduler.setRampUpMillis(rampUpMillis);
+            scheduler.setThinkTimeMillis(thinkTimeMillis);
+            scheduler.setPacingMillis(pacingMillis);
+            scheduler.setIterations(iterations);
+            scheduler.setMaxDurationMillis(maxDurationMillis);
+            List<Executor> lanes = engines.stream()
+                    .map(engine -> (Executor) task -> engine.submit(Executors.callable(task)))
+                    .collect(Collectors.toList());
+            statistics.start();
+            scheduler.run(virtualUsers, lanes, lane -> new FixtureSession(engines.get(lane)));
+            statistics.stop();
+            return writeReport();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SlimFixtureException("Exception: interrupted while running load test", e);
+        } finally {
+            engines.forEach(BrowserEngine::close);
+        }
+    }
+
+    /**
+     * Gets the error rate of the last load test.
+     *
+     * @return percentage of step executions that failed
+     */
+    public double errorRate() {
+        return statistics.errorRate();
+    }
+
+    /**
+     * Gets a percentile of the latencies of all steps of the last load test.
+     * Usage: | check | latency percentile | 95 | < 2000 |
+     *
+     * @param percentile percentile, between 0 and 100
+     * @return latency in milliseconds
+     */
+    public long latencyPercentile(double percentile) {
+        return statistics.latencyPercentile(percentile);
+    }
+
+    /**
+     * Gets the executions, error rate and latency percentiles per step of the last load test.
+     *
+     * @return map with the step as key and its statistics as value
+     */
+    public Map<String, String> loadTestSummary() {
+        return statistics.summary();
+    }
+
+    private String writeReport() {
+        var reportFile = reportFolder.resolve("load-test-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".tsv");
+        try {
+            statistics.writeReport(reportFile);
+        } catch (IOException e) {
+            throw new SlimFixtureException("Exception: could not write load test report: " + e.getMessage(), e);
+        }
+        return String.format("<a href=\"%s\" target=\"_blank\">%s</a>",
+                getWikiUrl(reportFile.toAbsolutePath().toString()), reportFile.getFileName());
+    }
+
+    private void addStepWithArguments(String action, String... arguments) {
+        var methodName = toMethodName(action);
+        var method = Arrays.stream(PlaywrightFixture.class.getMethods())
+                .filter(m -> m.getName().equals(methodName) && m.getParameterCount() == arguments.length)
+                .findFirst()
+                .orElseThrow(() -> new SlimFixtureException(String.format("Exception: unknown action %s with %d argument(s)", action, arguments.length)));
+        var values = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            values[i] = convert(arguments[i], method.getParameterTypes()[i]);
+        }
+        var label = uniqueLabel((methodName + " " + String.join(" ", arguments)).trim());
+        steps.add(new Step(label, method, values));
+    }
+
+    /**
+     * Numbers a step that is equal to an earlier step, so both are reported separately.
+     */
+    private String uniqueLabel(String label) {
+        var unique = label;
+        for (int occurrence = 2; isUsed(unique); occurrence++) {
+            unique = label + " #" + occurrence;
+        }
+        return unique;
+    }
+
+    private boolean isUsed(String label) {
+        return steps.stream().anyMatch(step -> step.label.equals(label));
+    }
+
+    private static String toMethodName(String action) {
+        var words = action.trim().split("\\s+");
+        return words[0] + Arrays.stream(words).skip(1)
+                .map(word -> Character.toUpperCase(word.charAt(0)) + word.substring(1))
+                .collect(Collectors.joining());
+    }
+
+    private static Object convert(String value, Class<?> type) {
+        try {
+            if (type == int.class || type == Integer.class) {
+                return Integer.valueOf(value);
+            } else if (type == long.class || type == Long.class) {
+                return Long.valueOf(value);
+            } else if (type == double.class || type == Double.class) {
+                return Double.valueOf(value);
+            } else if (type == boolean.class || type == Boolean.class) {
+                return Boolean.valueOf(value);
+            }
+        } catch (NumberFormatException e) {
+            throw new SlimFixtureException("Exception: " + value + " is not a valid " + type.getSimpleName(), e);
+        }
+        return value;
+    }
+
+    private static class Step {
+        private final String label;
+        private final Method method;
+        private final Object[] arguments;
+
+        private Step(String label, Method method, Object[] arguments) {
+            this.label = label;
+            this.method = method;
+            this.arguments = arguments;
+        }
+    }
+
+    /**
+     * The steps of a virtual user, executed on its own fixture and browser context.
+     */
+    private class FixtureSession implements LoadTestScheduler.Session {
+        private final PlaywrightFixture fixture;
+
+        private FixtureSession(BrowserEngine engine) {
+            fixture = new PlaywrightFixture(engine.getBrowser(), engine.getName());
+        }
+
+        @Override
+        public void execute(int step) throws Throwable {
+            var current = steps.get(step);
+            try {
+                current.method.invoke(fixture, current.arguments);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public void close() {
+            fixture.closeContext();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Schedules the virtual users of a load test. Virtual users are spread over lanes, a lane executes the steps of its
+ * users one at a time on its own thread. Between steps a user waits on the scheduler thread, so the lane can execute
+ * the steps of other users in the meantime.
+ * <p>
+ * The start of the users is spread evenly over the ramp up time. A user waits the think time between two steps, and
+ * starts an iteration no sooner than the pacing after the start of its previous iteration. A failing step ends the
+ * iteration. After the maximum duration users don't start new steps, and the run waits a grace period for the steps
+ * still executing before giving up on them.
+ */
+class LoadTestScheduler {
+    static final String START_LABEL = "start virtual user";
+    static final String USER_LABEL = "virtual user";
+    private static final long GRACE_MILLIS = 60_000;
+
+    private final LoadTestStatistics statistics;
+    private final List<String> steps;
+    private long rampUpMillis;
+    private long thinkTimeMillis;
+    private long pacingMillis;
+    private int iterations = 1;
+    private long maxDurationMillis;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param statistics statistics to record the step executions in
+     * @param steps      labels of the steps every iteration executes, in order
+     */
+    LoadTestScheduler(LoadTestStatistics statistics, List<String> steps) {
+        this.statistics = statistics;
+        this.steps = steps;
+    }
+
+    void setRampUpMillis(long rampUpMillis) {
+        this.rampUpMillis = rampUpMillis;
+    }
+
+    void setThinkTimeMillis(long thinkTimeMillis) {
+        this.thinkTimeMillis = thinkTimeMillis;
+    }
+
+    void setPacingMillis(long pacingMillis) {
+        this.pacingMillis = pacingMillis;
+    }
+
+    void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * @param maxDurationMillis maximum duration in milliseconds, 0 for no maximum
+     */
+    void setMaxDurationMillis(long maxDurationMillis) {
+        this.maxDurationMillis = maxDurationMillis;
+    }
+
+    /**
+     * Runs the virtual users until all of them finished their iterations, or the maximum duration passed.
+     *
+     * @param virtualUsers number of virtual users
+     * @param lanes        executors to run the users on, users are assigned to the lanes round robin
+     * @param sessions     creates the session of a user on its lane, given the index of the lane
+     * @throws InterruptedException when interrupted while waiting for the users
+     * @throws SlimFixtureException when users are still executing a step after the maximum duration and grace period
+     */
+    void run(int virtualUsers, List<? extends Executor> lanes, IntFunction<Session> sessions) throws InterruptedException {
+        var scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "load-test-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            var deadline = maxDurationMillis > 0 ? System.currentTimeMillis() + maxDurationMillis : Long.MAX_VALUE;
+            var finished = new CountDownLatch(virtualUsers);
+            for (int i = 0; i < virtualUsers; i++) {
+                var lane = i % lanes.size();
+                var user = new VirtualUser(lanes.get(lane), () -> sessions.apply(lane), scheduler, finished, deadline);
+                var startDelay = virtualUsers > 1 ? rampUpMillis * i / (virtualUsers - 1) : 0;
+                user.schedule(user::start, startDelay);
+            }
+            if (maxDurationMillis > 0) {
+                if (!finished.await(maxDurationMillis + GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    throw new SlimFixtureException(String.format("Exception: %s virtual user(s) still busy %s ms after the maximum duration",
+                            finished.getCount(), GRACE_MILLIS));
+                }
+            } else {
+                finished.await();
+            }
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * The steps of a single virtual user. Its methods are only called on the lane of the user.
+     */
+    interface Session {
+        /**
+         * Executes a step.
+         *
+         * @param step index of the step
+         * @throws Throwable when the step failed
+         */
+        void execute(int step) throws Throwable;
+
+        /**
+         * Releases the resources of the user, after its last step.
+         */
+        void close();
+    }
+
+    private class VirtualUser {
+        private final Executor lane;
+        private final Supplier<Session> sessions;
+        private final ScheduledExecutorService scheduler;
+        private final CountDownLatch finished;
+        private final long deadline;
+        private Session session;
+        private volatile boolean done;
+        private int iteration;
+        private int step;
+        private long iterationStart;
+
+        private VirtualUser(Executor lane, Supplier<Session> sessions, ScheduledExecutorService scheduler,
+                            CountDownLatch finished, long deadline) {
+            this.lane = lane;
+            this.sessions = sessions;
+            this.scheduler = scheduler;
+            this.finished = finished;
+            this.deadline = deadline;
+        }
+
+        private void start() {
+            try {
+                session = sessions.get();
+            } catch (Throwable t) {
+                statistics.recordError(START_LABEL, 0, t);
+                finish();
+                return;
+            }
+            startIteration();
+        }
+
+        private void startIteration() {
+            iterationStart = System.currentTimeMillis();
+            step = 0;
+            executeStep();
+        }
+
+        private void executeStep() {
+            if (System.currentTimeMillis() > deadline) {
+                finish();
+                return;
+            }
+            var label = steps.get(step);
+            var start = System.nanoTime();
+            var succeeded = false;
+            try {
+                session.execute(step);
+                statistics.recordSuccess(label, (System.nanoTime() - start) / 1_000_000);
+                succeeded = true;
+            } catch (Throwable t) {
+                statistics.recordError(label, (System.nanoTime() - start) / 1_000_000, t);
+            }
+            next(succeeded);
+        }
+
+        private void next(boolean succeeded) {
+            if (succeeded && ++step < steps.size()) {
+                schedule(this::executeStep, thinkTimeMillis);
+            } else if (++iteration < iterations) {
+                schedule(this::startIteration, Math.max(thinkTimeMillis, pacingMillis - (System.currentTimeMillis() - iterationStart)));
+            } else {
+                finish();
+            }
+        }
+
+        /**
+         * Executes a part of the user's lifecycle on its lane after a delay. Whatever goes wrong, including a lane or
+         * scheduler that no longer accepts tasks, the user is finished, so the run never waits for it in vain.
+         */
+        private void schedule(Runnable task, long delayMillis) {
+            try {
+                scheduler.schedule(() -> {
+                    try {
+                        lane.execute(() -> {
+                            try {
+                                task.run();
+                            } catch (Throwable t) {
+                                statistics.recordError(USER_LABEL, 0, t);
+                                finish();
+                            }
+                        });
+                    } catch (Throwable t) {
+                        statistics.recordError(USER_LABEL, 0, t);
+                        abandon();
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (Throwable t) {
+                statistics.recordError(USER_LABEL, 0, t);
+                finish();
+            }
+        }
+
+        /**
+         * Finishes the user on its lane, closing its session.
+         */
+        private void finish() {
+            if (done) {
+                return;
+            }
+            try {
+                if (session != null) {
+                    session.close();
+                }
+            } catch (Throwable t) {
+                // the session's resources are released when the lane is closed
+            } finally {
+                abandon();
+            }
+        }
+
+        /**
+         * Finishes the user without touching its session, for when the lane can no longer be used.
+         */
+        private synchronized void abandon() {
+            if (!done) {
+                done = true;
+                finished.countDown();
+            }
+        }
+    }
+}
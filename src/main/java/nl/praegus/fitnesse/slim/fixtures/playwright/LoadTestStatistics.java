@@ -0,0 +1,185 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latencies and errors of the steps of a load test. Latencies are recorded per step, errors are counted per step and
+ * the first error message of a step is kept.
+ */
+public class LoadTestStatistics {
+    private static final double[] PERCENTILES = {50, 90, 95, 99};
+
+    private final Map<String, StepStatistics> steps = new LinkedHashMap<>();
+    private long startTime = System.currentTimeMillis();
+    private long endTime;
+
+    /**
+     * Registers a step, so steps are reported in script order.
+     *
+     * @param label label of the step
+     */
+    public synchronized void addStep(String label) {
+        steps.computeIfAbsent(label, StepStatistics::new);
+    }
+
+    /**
+     * Removes all steps and their statistics.
+     */
+    public synchronized void clear() {
+        steps.clear();
+        startTime = System.currentTimeMillis();
+        endTime = 0;
+    }
+
+    public synchronized void start() {
+        steps.values().forEach(StepStatistics::clear);
+        startTime = System.currentTimeMillis();
+        endTime = 0;
+    }
+
+    public synchronized void stop() {
+        endTime = System.currentTimeMillis();
+    }
+
+    public synchronized void recordSuccess(String label, long latencyInMilliseconds) {
+        steps.computeIfAbsent(label, StepStatistics::new).latencies.add(latencyInMilliseconds);
+    }
+
+    public synchronized void recordError(String label, long latencyInMilliseconds, Throwable error) {
+        var step = steps.computeIfAbsent(label, StepStatistics::new);
+        step.latencies.add(latencyInMilliseconds);
+        step.errors++;
+        if (step.firstError == null) {
+            step.firstError = String.valueOf(error.getMessage()).split("\n")[0];
+        }
+    }
+
+    /**
+     * Gets the error rate over all steps.
+     *
+     * @return percentage of step executions that failed
+     */
+    public synchronized double errorRate() {
+        long executions = 0;
+        long errors = 0;
+        for (StepStatistics step : steps.values()) {
+            executions += step.latencies.size();
+            errors += step.errors;
+        }
+        return executions == 0 ? 0 : 100.0 * errors / executions;
+    }
+
+    /**
+     * Gets a percentile of the latencies of all steps.
+     *
+     * @param percentile percentile, between 0 and 100
+     * @return the percentile in milliseconds, or -1 when no steps were executed
+     */
+    public synchronized long latencyPercentile(double percentile) {
+        List<Long> all = new ArrayList<>();
+        steps.values().forEach(step -> all.addAll(step.latencies));
+        return percentile(all, percentile);
+    }
+
+    /**
+     * Gets a summary per step.
+     *
+     * @return map with the step label as key and its executions, error rate and latency percentiles as value
+     */
+    public synchronized Map<String, String> summary() {
+        Map<String, String> summary = new LinkedHashMap<>();
+        for (StepStatistics step : steps.values()) {
+            var line = new StringBuilder();
+            line.append(step.latencies.size()).append(" executions, ")
+                    .append(String.format(Locale.ROOT, "%.1f", step.errorRate())).append("% errors");
+            for (double percentile : PERCENTILES) {
+                line.append(", p").append((int) percentile).append(" ").append(percentile(step.latencies, percentile)).append(" ms");
+            }
+            summary.put(step.label, line.toString());
+        }
+        return summary;
+    }
+
+    /**
+     * Writes a tab separated report with a line per step.
+     *
+     * @param file file to write the report to
+     * @throws IOException when the report could not be written
+     */
+    public synchronized void writeReport(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("step\texecutions\terrors\terror rate %\tmin\tp50\tp90\tp95\tp99\tmax\tfirst error");
+            writer.newLine();
+            for (StepStatistics step : steps.values()) {
+                var sorted = step.sorted();
+                writer.write(String.join("\t",
+                        step.label,
+                        String.valueOf(sorted.length),
+                        String.valueOf(step.errors),
+                        String.format(Locale.ROOT, "%.1f", step.errorRate()),
+                        String.valueOf(sorted.length > 0 ? sorted[0] : -1),
+                        String.valueOf(percentile(sorted, 50)),
+                        String.valueOf(percentile(sorted, 90)),
+                        String.valueOf(percentile(sorted, 95)),
+                        String.valueOf(percentile(sorted, 99)),
+                        String.valueOf(sorted.length > 0 ? sorted[sorted.length - 1] : -1),
+                        step.firstError != null ? step.firstError : ""));
+                writer.newLine();
+            }
+            writer.write(String.format(Locale.ROOT, "total\t\t\t%.1f\t\t%d\t%d\t%d\t%d\t\tduration %d ms",
+                    errorRate(), latencyPercentile(50), latencyPercentile(90), latencyPercentile(95),
+                    latencyPercentile(99), (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime));
+            writer.newLine();
+        }
+    }
+
+    private static long percentile(List<Long> latencies, double percentile) {
+        return percentile(latencies.stream().mapToLong(Long::longValue).sorted().toArray(), percentile);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        var index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static class StepStatistics {
+        private final String label;
+        private final List<Long> latencies = new ArrayList<>();
+        private long errors;
+        private String firstError;
+
+        private StepStatistics(String label) {
+            this.label = label;
+        }
+
+        private void clear() {
+            latencies.clear();
+            errors = 0;
+            firstError = null;
+        }
+
+        private double errorRate() {
+            return latencies.isEmpty() ? 0 : 100.0 * errors / latencies.size();
+        }
+
+        private long[] sorted() {
+            var sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.google.gson.JsonElement;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.CDPSession;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Samples the JavaScript heap, DOM node count and event listener count of pages through the Chrome DevTools
+ * Protocol, so memory leaks of an application show up as growth over a number of test steps. Optionally garbage is
+ * collected before every sample, so the heap size reflects retained memory only.
+ * <p>
+ * Samples are kept per page in a fixed size series; the oldest samples are dropped first. Only Chromium is supported.
+ * Samples are taken by the fixture after actions that may change the page: actions without a result, except setters.
+ */
+public class MemoryMonitor {
+    private static final int CAPACITY = 1_000;
+
+    private final Map<Page, Series> series = new WeakHashMap<>();
+    private final Map<Page, CDPSession> sessions = new WeakHashMap<>();
+    private boolean enabled;
+    private boolean collectGarbage = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setCollectGarbage(boolean collectGarbage) {
+        this.collectGarbage = collectGarbage;
+    }
+
+    /**
+     * Opens the DevTools session of a page, so a browser that does not support memory monitoring is reported when
+     * monitoring is enabled instead of at the first sample.
+     *
+     * @param context context of the page
+     * @param page    page to sample
+     */
+    public void attach(BrowserContext context, Page page) {
+        if (page != null && !page.isClosed()) {
+            session(context, page);
+        }
+    }
+
+    /**
+     * Takes a sample of a page.
+     *
+     * @param context context of the page
+     * @param page    page to sample
+     * @param step    name of the step the sample is taken after
+     * @return description of the sample, or null when the page is closed
+     */
+    public String sample(BrowserContext context, Page page, String step) {
+        if (page == null || page.isClosed()) {
+            return null;
+        }
+        var session = session(context, page);
+        if (collectGarbage) {
+            session.send("HeapProfiler.collectGarbage");
+        }
+        long heap = 0;
+        long nodes = 0;
+        long listeners = 0;
+        for (JsonElement metric : session.send("Performance.getMetrics").getAsJsonArray("metrics")) {
+            var name = metric.getAsJsonObject().get("name").getAsString();
+            var value = metric.getAsJsonObject().get("value").getAsLong();
+            if ("JSHeapUsedSize".equals(name)) {
+                heap = value;
+            } else if ("Nodes".equals(name)) {
+                nodes = value;
+            } else if ("JSEventListeners".equals(name)) {
+                listeners = value;
+            }
+        }
+        var pageSeries = series.computeIfAbsent(page, p -> new Series());
+        pageSeries.add(step, heap, nodes, listeners);
+        return pageSeries.describe(pageSeries.size - 1);
+    }
+
+    private CDPSession session(BrowserContext context, Page page) {
+        return sessions.computeIfAbsent(page, p -> {
+            try {
+                var newSession = context.newCDPSession(p);
+                newSession.send("Performance.enable");
+                return newSession;
+            } catch (PlaywrightException e) {
+                throw new SlimFixtureException("Exception: memory monitoring requires Chromium: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    public Series series(Page page) {
+        var pageSeries = series.get(page);
+        if (pageSeries == null || pageSeries.size == 0) {
+            throw new SlimFixtureException("Exception: no memory samples taken for the current page.");
+        }
+        return pageSeries;
+    }
+
+    /**
+     * Memory samples of a single page, stored in parallel arrays used as ring buffer.
+     */
+    public static class Series {
+        private final String[] steps = new String[CAPACITY];
+        private final long[] heap = new long[CAPACITY];
+        private final long[] nodes = new long[CAPACITY];
+        private final long[] listeners = new long[CAPACITY];
+        private int next;
+        private int size;
+
+        private void add(String step, long heapUsed, long nodeCount, long listenerCount) {
+            steps[next] = step;
+            heap[next] = heapUsed;
+            nodes[next] = nodeCount;
+            listeners[next] = listenerCount;
+            next = (next + 1) % CAPACITY;
+            size = Math.min(size + 1, CAPACITY);
+        }
+
+        /**
+         * Gets the growth of the JS heap over the last steps.
+         *
+         * @param steps number of steps
+         * @return growth in bytes
+         */
+        public long heapGrowth(int steps) {
+            return growth(heap, steps);
+        }
+
+        public long nodeGrowth(int steps) {
+            return growth(nodes, steps);
+        }
+
+        public long listenerGrowth(int steps) {
+            return growth(listeners, steps);
+        }
+
+        /**
+         * Describes the samples, oldest first.
+         *
+         * @return one line per sample
+         */
+        public List<String> describe() {
+            List<String> lines = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                lines.add(describe(i));
+            }
+            return lines;
+        }
+
+        private String describe(int position) {
+            var index = index(position);
+            return String.format("%s: heap %.1f MB, %d nodes, %d listeners",
+                    steps[index], heap[index] / (1024.0 * 1024), nodes[index], listeners[index]);
+        }
+
+        private long growth(long[] values, int steps) {
+            var last = size - 1;
+            var first = Math.max(0, last - steps);
+            return values[index(last)] - values[index(first)];
+        }
+
+        private int index(int position) {
+            return (next - size + position + CAPACITY) % CAPACITY;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import fitnesse.slim.fixtureInteraction.FixtureInteraction;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * FitNesse fixture running every {@link PlaywrightFixture} action concurrently on all browser engines started using
+ * {@link PlaywrightSetup#startBrowsers(String)}. Each engine has its own browser context. When the engines return
+ * different results, or not all of them succeed, the action fails and the divergence is reported. When all engines
+ * fail with the same error, that error is reported as is.
+ * <p>
+ * Actions are invoked on the engine fixtures the same way FitNesse invokes them on a single fixture, so adaptive
+ * timeouts, span export, memory monitoring and video retention apply per engine.
+ * <p>
+ * Usage:
+ * <pre>
+ * {@code
+ *
+ * |script            |playwright setup        |
+ * |start browsers    |chromium, firefox, webkit|
+ *
+ * |script            |multi engine playwright fixture|
+ * |navigate to       |https://praegus.nl/            |
+ * |show              |engine timings                 |
+ *
+ * }
+ * </pre>
+ */
+public class MultiEnginePlaywrightFixture extends PlaywrightFixture {
+    private final Map<BrowserEngine, PlaywrightFixture> engineFixtures = new LinkedHashMap<>();
+    private final Map<String, EngineResult> lastResults = new LinkedHashMap<>();
+
+    public MultiEnginePlaywrightFixture() {
+        super(null, "");
+        if (PlaywrightSetup.getEngines().isEmpty()) {
+            throw new SlimFixtureException("Exception: no browser engines started. Use start browsers in playwright setup.");
+        }
+        Map<BrowserEngine, Future<PlaywrightFixture>> fixtures = new LinkedHashMap<>();
+        for (BrowserEngine engine : PlaywrightSetup.getEngines()) {
+            fixtures.put(engine, engine.submit(() -> new PlaywrightFixture(engine.getBrowser(), engine.getName())));
+        }
+        fixtures.forEach((engine, fixture) -> engineFixtures.put(engine, BrowserEngine.await(fixture)));
+    }
+
+    /**
+     * Gets the result of the last action per engine.
+     *
+     * @return map with engine name as key and the returned value or error of the last action as value
+     */
+    public Map<String, String> engineResults() {
+        return lastResults.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toString(), (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Gets the duration of the last action per engine.
+     *
+     * @return map with engine name as key and the duration of the last action in milliseconds as value
+     */
+    public Map<String, Long> engineTimings() {
+        return lastResults.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().durationMillis, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    @Override
+    protected Object invoke(FixtureInteraction interaction, Method method, Object[] arguments) throws Throwable {
+        if (method.getDeclaringClass() != PlaywrightFixture.class) {
+            return super.invoke(interaction, method, arguments);
+        }
+        Map<String, Future<EngineResult>> results = new LinkedHashMap<>();
+        engineFixtures.forEach((engine, fixture) ->
+                results.put(engine.getName(), engine.submit(() -> EngineResult.measure(interaction, method, fixture, arguments))));
+        lastResults.clear();
+        results.forEach((engineName, result) -> lastResults.put(engineName, BrowserEngine.await(result)));
+        return combinedResult(method);
+    }
+
+    private Object combinedResult(Method method) throws Throwable {
+        var values = new LinkedHashSet<>();
+        var errors = new LinkedHashSet<String>();
+        Throwable error = null;
+        for (EngineResult result : lastResults.values()) {
+            if (result.error != null) {
+                error = result.error;
+                errors.add(result.toString());
+            } else {
+                values.add(result.value);
+            }
+        }
+        if (error != null && values.isEmpty() && errors.size() == 1) {
+            throw error;
+        }
+        if (error != null || values.size() > 1) {
+            throw new SlimFixtureException(false, String.format("Engines diverge on %s: %s", method.getName(), engineResults()));
+        }
+        return values.iterator().next();
+    }
+
+    private static class EngineResult {
+        private final Object value;
+        private final Throwable error;
+        private final long durationMillis;
+
+        private EngineResult(Object value, Throwable error, long durationMillis) {
+            this.value = value;
+            this.error = error;
+            this.durationMillis = durationMillis;
+        }
+
+        static EngineResult measure(FixtureInteraction interaction, Method method, PlaywrightFixture fixture, Object[] arguments) {
+            var start = System.nanoTime();
+            try {
+                var value = fixture.invoke(interaction, method, arguments);
+                return new EngineResult(value, null, (System.nanoTime() - start) / 1_000_000);
+            } catch (InvocationTargetException e) {
+                return new EngineResult(null, e.getCause(), (System.nanoTime() - start) / 1_000_000);
+            } catch (Throwable e) {
+                return new EngineResult(null, e, (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return error != null ? "error: " + error.getMessage() : Objects.toString(value);
+        }
+    }
+}
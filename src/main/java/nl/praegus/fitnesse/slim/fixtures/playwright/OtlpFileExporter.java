@@ -0,0 +1,127 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports spans as OTLP JSON to a local file, one export request per line, so they can be imported into a tracing
+ * backend without a collector running during the test. Spans are queued and written in batches on a background
+ * thread. The queue is bounded: when it is full, spans are dropped rather than slowing down the test. Spans still
+ * queued when the JVM exits are written by {@link Tracer}.
+ */
+public class OtlpFileExporter {
+    private static final int MAX_QUEUE_SIZE = 10_000;
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final long FLUSH_INTERVAL = 1_000;
+    private static final String SERVICE_NAME = "fitnesse-playwright";
+    private static final Map<Path, OtlpFileExporter> exporters = new HashMap<>();
+
+    private final Gson gson = new Gson();
+    private final Path file;
+    private final BlockingQueue<Map<String, Object>> queue = new LinkedBlockingQueue<>(MAX_QUEUE_SIZE);
+
+    private OtlpFileExporter(Path file) {
+        this.file = file;
+        var thread = new Thread(this::run, "otlp-file-exporter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the exporter for a file, starting it on first use.
+     *
+     * @param file file to append the spans to
+     * @return the exporter
+     */
+    public static synchronized OtlpFileExporter forFile(Path file) {
+        return exporters.computeIfAbsent(file.toAbsolutePath(), OtlpFileExporter::new);
+    }
+
+    /**
+     * Queues a span for export.
+     *
+     * @param span span in OTLP JSON structure
+     */
+    public void export(Map<String, Object> span) {
+        queue.offer(span);
+    }
+
+    private void run() {
+        List<Map<String, Object>> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                var span = queue.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+                if (span != null) {
+                    batch.add(span);
+                    queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+                }
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes all queued spans.
+     */
+    synchronized void flush() {
+        List<Map<String, Object>> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private synchronized void write(List<Map<String, Object>> spans) {
+        Map<String, Object> scope = new LinkedHashMap<>();
+        scope.put("scope", Collections.singletonMap("name", getClass().getPackageName()));
+        scope.put("spans", spans);
+        Map<String, Object> resource = new LinkedHashMap<>();
+        resource.put("resource", Collections.singletonMap("attributes",
+                Collections.singletonList(attribute("service.name", SERVICE_NAME))));
+        resource.put("scopeSpans", Collections.singletonList(scope));
+        var request = Collections.singletonMap("resourceSpans", Collections.singletonList(resource));
+        try {
+            Files.createDirectories(file.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(gson.toJson(request));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            // spans of this batch are lost, the test is not affected
+        }
+    }
+
+    static Map<String, Object> attribute(String key, Object value) {
+        Map<String, Object> attribute = new LinkedHashMap<>();
+        attribute.put("key", key);
+        if (value instanceof Long || value instanceof Integer) {
+            attribute.put("value", Collections.singletonMap("intValue", String.valueOf(value)));
+        } else if (value instanceof Boolean) {
+            attribute.put("value", Collections.singletonMap("boolValue", value));
+        } else {
+            attribute.put("value", Collections.singletonMap("stringValue", String.valueOf(value)));
+        }
+        return attribute;
+    }
+}
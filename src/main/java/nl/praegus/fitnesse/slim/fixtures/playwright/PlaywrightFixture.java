@@ -7,17 +7,23 @@ import com.microsoft.playwright.options.AriaRole;
 import com.microsoft.playwright.options.LoadState;
 import com.microsoft.playwright.options.SelectOption;
 import com.microsoft.playwright.options.WaitForSelectorState;
+import fitnesse.slim.fixtureInteraction.FixtureInteraction;
 import nl.hsac.fitnesse.fixture.slim.SlimFixture;
 import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static com.microsoft.playwright.assertions.PlaywrightAssertions.assertThat;
 
@@ -27,18 +33,72 @@ import static com.microsoft.playwright.assertions.PlaywrightAssertions.assertTha
  * @see <a href="https://playwright.dev/java/">Playwright Java documentation</a>.
  */
 public class PlaywrightFixture extends SlimFixture {
-    private final Browser browser = PlaywrightSetup.getBrowser();
+    private static final String SNAPSHOT_HASH_PREFIX = "#snapshot ";
+    private static final Set<String> UNTRACED_METHODS = Set.of("setSpanExport", "startTracingPage", "endTracingPage");
+    private final Browser browser;
     private final CookieManager cookieManager = new CookieManager();
-    private final File screenshotFolder = new File(getEnvironment().getFitNesseFilesSectionDir(), "screenshots");
-    private final File tracesFolder = new File(getEnvironment().getFitNesseFilesSectionDir(), "traces");
-    private final File storageStateFolder = new File(getEnvironment().getFitNesseFilesSectionDir(), "storage-states");
-
-
-    private BrowserContext browserContext = browser.newContext(PlaywrightSetup.getNewContextOptions());
-    private Page currentPage = browserContext.newPage();
+    private final FrameManager frameManager = new FrameManager();
+    private final TabRegistry tabRegistry = new TabRegistry();
+    private final ApiClient apiClient = new ApiClient();
+    private final SoftAssertions softAssertions = new SoftAssertions();
+    private final RaceWait raceWait = new RaceWait();
+    private final ConsoleCollector consoleCollector = new ConsoleCollector();
+    private final ResponseJournal responseJournal = new ResponseJournal();
+    private final VirtualClock virtualClock = new VirtualClock();
+    private final HelperRuntime helperRuntime = new HelperRuntime();
+    private final SelectorCostAnalyzer selectorCostAnalyzer = new SelectorCostAnalyzer();
+    private final FaultInjector faultInjector = new FaultInjector();
+    private final LinkChecker linkChecker = new LinkChecker();
+    private final MemoryMonitor memoryMonitor = new MemoryMonitor();
+    private final Tracer tracer = new Tracer(Paths.get(getEnvironment().getFitNesseFilesSectionDir(), "otel", "spans.jsonl"));
+    private final AdaptiveTimeouts adaptiveTimeouts =
+            new AdaptiveTimeouts(Paths.get(getEnvironment().getFitNesseFilesSectionDir(), "adaptive-timeouts", "action-latencies.tsv"));
+    private final File screenshotFolder;
+    private final File tracesFolder;
+    private final File storageStateFolder;
+    private final File snapshotFolder;
+    private final DownloadManager downloadManager;
+
+
+    private BrowserContext browserContext;
+    private VideoRetention.Recording recording;
+    private List<String> snapshotDifferences = new ArrayList<>();
+    private boolean createMissingSnapshotBaselines;
+    private Page currentPage;
+    private Page actionPage;
+    private long actionResponseMarker;
     private String storageState;
     private Double timeout;
 
+    public PlaywrightFixture() {
+        this(PlaywrightSetup.getBrowser(), "");
+        var persistentContext = PlaywrightSetup.getPersistentContext();
+        if (browserContext == null && persistentContext != null) {
+            useContext(persistentContext);
+            currentPage = persistentContext.pages().isEmpty() ? persistentContext.newPage() : persistentContext.pages().get(0);
+        }
+    }
+
+    /**
+     * Creates a fixture using the given browser.
+     *
+     * @param browser    browser to open the browser context in. When null no browser context is opened.
+     * @param engineName name of the browser engine, used as sub folder for screenshots, traces and storage states.
+     *                   Empty to use the folders themselves.
+     */
+    PlaywrightFixture(Browser browser, String engineName) {
+        this.browser = browser;
+        screenshotFolder = outputFolder("screenshots", engineName);
+        snapshotFolder = outputFolder("snapshots", engineName);
+        tracesFolder = outputFolder("traces", engineName);
+        storageStateFolder = outputFolder("storage-states", engineName);
+        downloadManager = new DownloadManager(outputFolder("downloads", engineName));
+        if (browser != null) {
+            useContext(PlaywrightSetup.getResourceMonitor().openContext(null, () -> browser.newContext(PlaywrightSetup.getNewContextOptions())));
+            currentPage = browserContext.newPage();
+        }
+    }
+
     /**
      * Sets the timeout for the current browser context.
      *
@@ -49,13 +109,42 @@ public class PlaywrightFixture extends SlimFixture {
         browserContext.setDefaultTimeout(timeout);
     }
 
+    /**
+     * Enables or disables adaptive timeouts. When enabled, the action latency of each selector (the duration of a
+     * successful action using it, including waiting for the element) is recorded per page across runs, and actions on
+     * a selector time out after the p99 of its recorded action latencies times a factor, capped by the global timeout.
+     * Selectors without enough history use the global timeout.
+     *
+     * @param adaptive true to enable adaptive timeouts
+     */
+    public void setAdaptiveTimeouts(boolean adaptive) {
+        adaptiveTimeouts.setEnabled(adaptive);
+    }
+
+    /**
+     * Sets the factor the p99 action latency of a selector is multiplied with to get its adaptive timeout. Defaults
+     * to 3.
+     *
+     * @param factor factor to multiply the p99 action latency with
+     */
+    public void setAdaptiveTimeoutFactor(double factor) {
+        adaptiveTimeouts.setFactor(factor);
+    }
+
+    /**
+     * Writes the recorded action latencies to disk. This is also done when the test run ends.
+     */
+    public void saveActionLatencies() {
+        adaptiveTimeouts.save();
+    }
+
     //Page management
 
     /**
      * Opens a new browser context
      */
     public void openNewContext() {
-        browserContext = browser.newContext();
+        useContext(PlaywrightSetup.getResourceMonitor().openContext(browserContext, () -> requireBrowser().newContext()));
     }
 
     /**
@@ -70,6 +159,14 @@ public class PlaywrightFixture extends SlimFixture {
      */
     public void closeContext() {
         browserContext.close();
+        PlaywrightSetup.getResourceMonitor().release(browserContext);
+    }
+
+    /**
+     * Keeps the videos of the current context, also when no action or check fails in it.
+     */
+    public void keepVideo() {
+        recording.keep();
     }
 
     /**
@@ -90,7 +187,7 @@ public class PlaywrightFixture extends SlimFixture {
         if (isLastPage(currentPage)) {
             throw new SlimFixtureException("Exception: Next tab not found.");
         }
-        currentPage = getPageList().get(getPageIndex(currentPage) + 1);
+        currentPage = tabRegistry.get(getPageIndex(currentPage) + 1);
     }
 
     /**
@@ -112,7 +209,7 @@ public class PlaywrightFixture extends SlimFixture {
         if (isFirstPage(currentPage)) {
             throw new SlimFixtureException("Exception: preceding tab not found.");
         }
-        currentPage = getPageList().get(getPageIndex(currentPage) - 1);
+        currentPage = tabRegistry.get(getPageIndex(currentPage) - 1);
     }
 
     /**
@@ -122,7 +219,59 @@ public class PlaywrightFixture extends SlimFixture {
      * @param pageIndex    Page index of the page to switch to
      */
     public void switchToPage(int pageIndex) {
-        currentPage = getPageList().get(pageIndex);
+        currentPage = tabRegistry.get(pageIndex);
+    }
+
+    /**
+     * Gives the current tab a name, so it can be switched back to regardless of tabs opened or closed in between.
+     * Usage: | name current tab | [name] |
+     *
+     * @param name name of the tab
+     */
+    public void nameCurrentTab(String name) {
+        tabRegistry.name(name, currentPage);
+    }
+
+    /**
+     * Switches to a tab that was named using {@link PlaywrightFixture#nameCurrentTab(String)}.
+     *
+     * @param name name of the tab
+     * @throws SlimFixtureException when no open tab has the given name
+     */
+    public void switchToTabNamed(String name) {
+        currentPage = tabRegistry.named(name);
+    }
+
+    /**
+     * Switches to the first tab with an url matching a regex.
+     *
+     * @param urlRegex regex the url of the tab should match
+     * @throws SlimFixtureException when no tab matches
+     */
+    public void switchToTabWithUrlMatching(String urlRegex) {
+        currentPage = tabRegistry.withUrlMatching(urlRegex);
+    }
+
+    /**
+     * Switches to the first tab with a given title.
+     *
+     * @param title title of the tab
+     * @throws SlimFixtureException when no tab has the given title
+     */
+    public void switchToTabWithTitle(String title) {
+        currentPage = tabRegistry.withTitle(title);
+    }
+
+    /**
+     * Waits for a tab with an url matching a regex to be present and switches to it. Tabs opened by popups are picked
+     * up as soon as the browser reports them.
+     * Usage: | wait for tab with url matching | [urlRegex] |
+     *
+     * @param urlRegex regex the url of the tab should match
+     * @throws SlimFixtureException when no matching tab appears before the timeout expires
+     */
+    public void waitForTabWithUrlMatching(String urlRegex) {
+        currentPage = tabRegistry.waitForUrlMatching(urlRegex, timeout);
     }
 
     /**
@@ -136,7 +285,7 @@ public class PlaywrightFixture extends SlimFixture {
     public void closeCurrentTab() {
         var tabToCloseIndex = getPageIndex(currentPage);
         switchToPreviousTab();
-        getPageList().get(tabToCloseIndex).close();
+        tabRegistry.get(tabToCloseIndex).close();
     }
 
     /**
@@ -148,7 +297,7 @@ public class PlaywrightFixture extends SlimFixture {
         if (isLastPage(currentPage)) {
             throw new SlimFixtureException("Exception: no next tab found");
         }
-        getPageList().get(getPageIndex(currentPage) + 1).close();
+        tabRegistry.get(getPageIndex(currentPage) + 1).close();
     }
 
     //Cookie management
@@ -274,7 +423,7 @@ public class PlaywrightFixture extends SlimFixture {
      * @param name ARIA accessible name
      */
     public void clickRoleWithName(String role, String name) {
-        currentPage.getByRole(AriaRole.valueOf(role.toUpperCase()), new Page.GetByRoleOptions().setName(name)).click();
+        frameManager.currentFrame(currentPage).getByRole(AriaRole.valueOf(role.toUpperCase()), new Frame.GetByRoleOptions().setName(name)).click();
     }
 
     /**
@@ -284,7 +433,7 @@ public class PlaywrightFixture extends SlimFixture {
      * @param text     (sub)string required to be present in the element or one of its children.
      */
     public void clickWithText(String selector, String text) {
-        getLocator(selector, new Page.LocatorOptions().setHasText(text)).click();
+        getLocator(selector, new Frame.LocatorOptions().setHasText(text)).click();
     }
 
     /**
@@ -483,6 +632,48 @@ public class PlaywrightFixture extends SlimFixture {
         currentPage.waitForLoadState(LoadState.NETWORKIDLE);
     }
 
+    /**
+     * Registers an element becoming visible as condition for {@link PlaywrightFixture#waitForFirstCondition()}.
+     * Only CSS and XPath selectors are supported.
+     *
+     * @param selector CSS or XPath selector to locate the element
+     */
+    public void raceForVisible(String selector) {
+        raceWait.addSelector(selector);
+    }
+
+    /**
+     * Registers the current page getting an url matching a regex as condition for
+     * {@link PlaywrightFixture#waitForFirstCondition()}.
+     *
+     * @param urlRegex regex the url should match
+     */
+    public void raceForUrl(String urlRegex) {
+        raceWait.addUrl(urlRegex);
+    }
+
+    /**
+     * Registers a response from an url matching a regex as condition for
+     * {@link PlaywrightFixture#waitForFirstCondition()}.
+     *
+     * @param urlRegex regex the url of the response should match
+     */
+    public void raceForResponseFromUrl(String urlRegex) {
+        raceWait.addResponse(urlRegex);
+    }
+
+    /**
+     * Waits in a single wait for whichever of the registered conditions is met first, so the script can branch on the
+     * outcome without waiting for the conditions one by one.
+     * Usage: | $outcome= | wait for first condition |
+     *
+     * @return the selector or url regex of the condition that was met first
+     * @throws SlimFixtureException when none of the conditions is met before the timeout expires
+     */
+    public String waitForFirstCondition() {
+        return raceWait.waitForFirst(browserContext, currentPage, timeout);
+    }
+
     /**
      * Wait for a given amount of time. Only use for debugging, flaky!
      *
@@ -628,6 +819,93 @@ public class PlaywrightFixture extends SlimFixture {
         assertThat(currentPage).hasTitle(title);
     }
 
+    //Soft assertions
+
+    /**
+     * Registers a soft assertion that an element is visible. Soft assertions are evaluated together by
+     * {@link PlaywrightFixture#verifySoftAssertions()}. Only CSS and XPath selectors are supported.
+     *
+     * @param selector CSS or XPath selector to locate the element.
+     */
+    public void softAssertThatIsVisible(String selector) {
+        softAssertions.expect("visible", selector, null);
+    }
+
+    /**
+     * Registers a soft assertion that an element is hidden or not present.
+     *
+     * @param selector CSS or XPath selector to locate the element.
+     */
+    public void softAssertThatIsHidden(String selector) {
+        softAssertions.expect("hidden", selector, null);
+    }
+
+    /**
+     * Registers a soft assertion that an element is enabled.
+     *
+     * @param selector CSS or XPath selector to locate the element.
+     */
+    public void softAssertThatIsEnabled(String selector) {
+        softAssertions.expect("enabled", selector, null);
+    }
+
+    /**
+     * Registers a soft assertion that an element is checked.
+     *
+     * @param selector CSS or XPath selector to locate the element.
+     */
+    public void softAssertThatIsChecked(String selector) {
+        softAssertions.expect("checked", selector, null);
+    }
+
+    /**
+     * Registers a soft assertion that an element contains a text. Whitespace is normalized.
+     *
+     * @param selector CSS or XPath selector to locate the element.
+     * @param value    text that should be present in the element
+     */
+    public void softAssertThatContainsText(String selector, String value) {
+        softAssertions.expect("containsText", selector, value);
+    }
+
+    /**
+     * Registers a soft assertion that an input element has a value.
+     *
+     * @param selector CSS or XPath selector to locate the element.
+     * @param value    expected value
+     */
+    public void softAssertThatHasValue(String selector, String value) {
+        softAssertions.expect("hasValue", selector, value);
+    }
+
+    /**
+     * Evaluates all registered soft assertions together in a single polling loop in the current frame scope. Stops as
+     * soon as all pass or when the timeout expires.
+     * Usage: | verify soft assertions |
+     *
+     * @return true when all soft assertions passed
+     * @throws SlimFixtureException listing all failed soft assertions
+     */
+    public boolean verifySoftAssertions() {
+        var failed = softAssertions.verify(frameManager.currentFrame(currentPage)).entrySet().stream()
+                .filter(result -> !result.getValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (!failed.isEmpty()) {
+            throw new SlimFixtureException(false, "Soft assertions failed: " + String.join(", ", failed));
+        }
+        return true;
+    }
+
+    /**
+     * Gets the results of the last verified soft assertions.
+     *
+     * @return map with a description of the soft assertion as key and whether it passed as value
+     */
+    public Map<String, Boolean> softAssertionResults() {
+        return softAssertions.getResults();
+    }
+
     /**
      * Checks if an element is visible.
      *
@@ -712,7 +990,7 @@ public class PlaywrightFixture extends SlimFixture {
      * @return value of the given attribute
      */
     public String valueOfAttributeForSelector(String attributeName, String selector) {
-        return currentPage.getAttribute(selector, attributeName);
+        return getLocator(selector).getAttribute(attributeName);
     }
 
     /**
@@ -722,8 +1000,7 @@ public class PlaywrightFixture extends SlimFixture {
      * @return selected label
      */
     public String selectedLabelIn(String selector) {
-        var selectedIndex = currentPage.evalOnSelector(selector, "e => e.selectedIndex");
-        return currentPage.evalOnSelector(selector, String.format("e => e.options[%s].innerText", selectedIndex)).toString();
+        return helperRuntime.callForString(getLocator(selector), "selectedLabel");
     }
 
     /**
@@ -803,6 +1080,43 @@ public class PlaywrightFixture extends SlimFixture {
 
     //FrameLocator
 
+    /**
+     * Enters a frame. All following actions are done within this frame until it is left. Entering a frame while
+     * already in a frame enters the nested frame. The resolved frames are cached until they are detached or navigated.
+     * Usage: | enter frame | [frame] |
+     *
+     * @param frame playwright selector to locate a frame within the current frame scope.
+     */
+    public void enterFrame(String frame) {
+        frameManager.enterFrame(currentPage, frame);
+    }
+
+    /**
+     * Leaves the innermost frame that was entered.
+     *
+     * @throws SlimFixtureException when no frame was entered
+     */
+    public void leaveFrame() {
+        frameManager.leaveFrame(currentPage);
+    }
+
+    /**
+     * Leaves all entered frames, so following actions are done on the page itself.
+     */
+    public void leaveAllFrames() {
+        frameManager.leaveAllFrames(currentPage);
+    }
+
+    /**
+     * Enables or disables frame auto discovery. When enabled, selectors that are not found in the current frame
+     * scope are searched in all frames of the page and the frame they were found in is remembered.
+     *
+     * @param autoDiscovery true to enable frame auto discovery
+     */
+    public void setFrameAutoDiscovery(boolean autoDiscovery) {
+        frameManager.setAutoDiscovery(autoDiscovery);
+    }
+
     /**
      * Clicks on an element within a frame
      * Usage: | click | [selector] | frame | [frame] |
@@ -882,22 +1196,7 @@ public class PlaywrightFixture extends SlimFixture {
      * @return value of the given element
      */
     public String valueOfFrame(String selector, String frame) {
-        String result;
-        switch (getLocator(selector, frame).evaluate("e => e.tagName", null, new Locator.EvaluateOptions()).toString().toLowerCase()) {
-            case "input":
-            case "textarea":
-            case "select":
-                result = getLocator(selector, frame).inputValue();
-                break;
-            case "button":
-            case "option":
-            case "text":
-                result = getLocator(selector, frame).innerHTML();
-                break;
-            default:
-                result = getLocator(selector, frame).innerText();
-        }
-        return result;
+        return helperRuntime.callForString(getLocator(selector, frame), "valueOf");
     }
 
     /**
@@ -966,247 +1265,1563 @@ public class PlaywrightFixture extends SlimFixture {
         return getLocator(selector, frame).count();
     }
 
-    //Debugging
+    //Console and page errors
 
     /**
-     * Calling pause() starts the PlayWright Inspector, but only when NOT running headless!
-     * Scripts recorded in the Playwright Inspector can not be used in FitNesse, but the inspector might be useful
-     * when finding and debugging selectors.
+     * Sets the number of console messages, page errors and failed requests kept per page. Applies to pages opened
+     * after this call. Defaults to 100.
+     *
+     * @param size number of entries to keep per page
      */
-    public void debug() {
-        currentPage.pause();
+    public void setConsoleBufferSize(int size) {
+        consoleCollector.setCapacity(size);
     }
 
     /**
-     * Gets current page object. Useful for fixture debugging.
+     * Only keeps console messages matching a regex. Counters still count all messages.
      *
-     * @return string representation of current page object
+     * @param regex regex console messages should match, empty to keep all messages
      */
-    public String getCurrentPage() {
-        return currentPage.toString();
+    public void setConsoleFilter(String regex) {
+        consoleCollector.setFilter(regex);
     }
 
     /**
-     * Gets current page index.
-     * Usage: | show | get current page index |
-     * Usage: | $var= | get current page index |
+     * Only keeps console messages of at least the given level. Counters still count all messages.
      *
-     * @return int representation of current page index
+     * @param level minimum level: debug, info, warning or error
      */
-    public int getCurrentPageIndex() { return getPageIndex(currentPage); }
+    public void setConsoleMinimumLevel(String level) {
+        consoleCollector.setMinimumLevel(level);
+    }
 
     /**
-     * Gets list of all pages in current browser context. Useful for fixture debugging.
+     * Gets the kept console messages, page errors and failed requests of the current page, oldest first.
      *
-     * @return string representation of current pages list
+     * @return list of log entries
      */
-    public String getPages() {
-        return getPageList().toString();
+    public List<String> consoleMessages() {
+        return consoleCollector.log(currentPage).entries();
     }
 
     /**
-     * Get all browser contexts. Useful for fixture debugging.
+     * Gets a marker for the current position in the console log of the current page.
+     * Usage: | $marker= | console marker |
      *
-     * @return string representation of all browser context.
+     * @return marker to use with {@link PlaywrightFixture#noJsErrorsSince(long)}
      */
-    public String getContexts() {
-        return browser.contexts().toString();
+    public long consoleMarker() {
+        return consoleCollector.log(currentPage).marker();
     }
 
     /**
-     * Get current browser context.
+     * Checks that no console errors or uncaught page errors occurred on the current page since a marker.
+     * Usage: | ensure | no js errors since | $marker |
      *
-     * @return string representation of current browser context
+     * @param marker marker taken using {@link PlaywrightFixture#consoleMarker()}
+     * @return true when no errors occurred since the marker
      */
-    public String getCurrentContext() {
-        return browserContext.toString();
+    public boolean noJsErrorsSince(long marker) {
+        return consoleCollector.log(currentPage).noErrorsSince(marker);
     }
 
-    //Manage re-usable state
-
     /**
-     * Saves current storage state in memory.
+     * Checks that no console errors or uncaught page errors occurred on the current page.
+     *
+     * @return true when no errors occurred
      */
-    public void saveStorageState() {
-        storageState = browserContext.storageState();
+    public boolean noJsErrors() {
+        return noJsErrorsSince(0);
     }
 
     /**
-     * Saves current storage state as a json file
+     * Gets the number of console errors on the current page.
      *
-     * @param name name of the json file without extension
+     * @return number of console errors
      */
-    public void saveStorageStateToFile(String name) {
-        browserContext.storageState(new BrowserContext.StorageStateOptions().setPath(Paths.get(storageStateFolder + "/" + name + ".json")));
+    public long consoleErrorCount() {
+        return consoleCollector.log(currentPage).getErrorCount();
     }
 
     /**
-     * Gets the saved storage state from memory.
+     * Gets the number of console warnings on the current page.
      *
-     * @return storage state
+     * @return number of console warnings
      */
-    public String getStorageState() {
-        return storageState;
+    public long consoleWarningCount() {
+        return consoleCollector.log(currentPage).getWarningCount();
     }
 
     /**
-     * Open a new browser context with a saved storage state
+     * Gets the number of uncaught errors on the current page.
+     *
+     * @return number of page errors
      */
-    public void openNewContextWithSavedStorageState() {
-        browserContext = browser.newContext(PlaywrightSetup.getNewContextOptions().setStorageState(getStorageState()));
-        setTimeout(timeout);
+    public long pageErrorCount() {
+        return consoleCollector.log(currentPage).getPageErrorCount();
     }
 
     /**
-     * Opens a new browser context with a storage state from file.
+     * Gets the number of failed requests on the current page.
      *
-     * @param name name of the storage state file
+     * @return number of failed requests
      */
-    public void openNewContextWithSavedStorageStateFromFile(String name) {
-        try {
-            browserContext = browser.newContext(PlaywrightSetup.getNewContextOptions().setStorageStatePath(Paths.get(storageStateFolder + "/" + name + ".json")));
-
-        } catch (Exception e) {
-            throw new SlimFixtureException(e.getMessage());
-        }
+    public long failedRequestCount() {
+        return consoleCollector.log(currentPage).getRequestFailureCount();
     }
 
-    //Tracing
+    //Clock
 
     /**
-     * Starts a trace
+     * Installs a fake clock in the current context, starting at the current time. The clock is also installed in
+     * contexts opened later, until {@link PlaywrightFixture#stopUsingFakeClock()}.
+     * Must be called before the page sets its timers, e.g. before navigating.
      */
-    public void startTrace() {
-        browserContext.tracing().start(new Tracing.StartOptions().setScreenshots(true).setSnapshots(true).setSources(false));
+    public void installClock() {
+        virtualClock.install(browserContext, null);
     }
 
     /**
-     * Save a trace to file with a given name.
+     * Installs a fake clock in the current context, starting at a given time.
+     * Usage: | install clock at | 2024-02-02T08:00:00 |
      *
-     * @param name name of the trace file
+     * @param time milliseconds since epoch or date string
      */
-    public void saveTrace(String name) {
-        browserContext.tracing().stop(new Tracing.StopOptions().setPath(Paths.get(tracesFolder + "/" + name + ".zip")));
+    public void installClockAt(String time) {
+        virtualClock.install(browserContext, time);
     }
 
     /**
-     * Opens a trace file.
+     * Advances the clock, firing due timers at most once. Simulates a laptop waking up after sleep.
+     * Usage: | fast forward clock | 15:00 |
      *
-     * @param name name of the trace to open.
-     * @throws IOException
-     * @throws InterruptedException
-     * @deprecated Does not work properly. Not all images are loaded. Using
-     * mvn exec:java -e -D exec.mainClass=com.microsoft.playwright.CLI -D exec.args="show-trace trace.zip" is preferred.
+     * @param duration milliseconds or duration like 15:00 (minutes:seconds) or 01:00:00 (hours:minutes:seconds)
      */
-    @Deprecated(since = "1.4.0")
-    public void openTrace(String name) throws IOException, InterruptedException {
-        String[] args = {"show-trace", tracesFolder + "/" + name + ".zip"};
-        CLI.main(args);
+    public void fastForwardClock(String duration) {
+        virtualClock.fastForward(browserContext, duration);
     }
 
-    //Network
-
     /**
-     * Opens a page and waits for a response from another server.
+     * Advances the clock, firing all timers that are due in order.
+     * Usage: | run clock for | 30:00 |
      *
-     * @param openUrl     url to open.
-     * @param responseUrl url that should be called during loading of the page.
+     * @param duration milliseconds or duration like 15:00 (minutes:seconds) or 01:00:00 (hours:minutes:seconds)
      */
-    public void openAndWaitForResponseFromUrl(String openUrl, String responseUrl) {
-        this.currentPage = browserContext.newPage();
-        currentPage.waitForResponse(responseUrl, () -> navigateTo(openUrl));
+    public void runClockFor(String duration) {
+        virtualClock.runFor(browserContext, duration);
     }
 
     /**
-     * Clicks an element and waits for a response from a given url.
+     * Advances the clock to a time and pauses it, so no timers fire until the clock is advanced or resumed.
      *
-     * @param selector Playwright selector to locate element to click on.
-     * @param url      url that should respond after clicking
+     * @param time milliseconds since epoch or date string
      */
-    public void clickAndWaitForResponseFromUrl(String selector, String url) {
-        currentPage.waitForResponse(url, () -> this.click(selector));
+    public void pauseClockAt(String time) {
+        virtualClock.pauseAt(browserContext, time);
     }
 
     /**
-     * Clicks an element and waits for the resulting request to finish.
-     *
-     * @param selector Playwright selector to locate element to click on.
+     * Resumes a paused clock.
      */
-    public void clickAndWaitForRequestFinished(String selector) {
-        currentPage.waitForRequestFinished(() -> this.click(selector));
+    public void resumeClock() {
+        virtualClock.resume(browserContext);
     }
 
     /**
-     * Selects an element and waits for a response from a given url.
+     * Makes Date.now() and new Date() return a fixed time, while timers keep running.
      *
-     * @param selector Playwright selector to locate element to select.
-     * @param url      url that should respond after selecting
+     * @param time milliseconds since epoch or date string
      */
-    public void selectAndWaitForResponseFromUrl(String selector, String url) {
-        currentPage.waitForResponse(Pattern.compile(url), () -> this.selectCheckbox(selector));
+    public void setClockFixedTime(String time) {
+        virtualClock.setFixedTime(browserContext, time);
     }
 
     /**
-     * Selects an element and wait for the resulting request to finish.
+     * Changes the current time without firing timers, e.g. to simulate a timezone change.
      *
-     * @param selector Playwright selector to locate element to select.
+     * @param time milliseconds since epoch or date string
      */
-    public void selectAndWaitForRequestFinished(String selector) {
-        currentPage.waitForRequestFinished(() -> this.selectCheckbox(selector));
+    public void setClockSystemTime(String time) {
+        virtualClock.setSystemTime(browserContext, time);
     }
 
     /**
-     * Enters and value into an element and waits for a response from a given url.
-     *
-     * @param value    value to enter
-     * @param selector Playwright selector to locate element to enter the value into.
-     * @param url      url that should respond after entering the value
+     * Stops installing the fake clock in new contexts. The clock of the current context stays installed.
      */
-    public void enterIntoAndWaitForResponseFromUrl(String value, String selector, String url) {
-        currentPage.waitForResponse(url, () -> this.enterInto(value, selector));
+    public void stopUsingFakeClock() {
+        virtualClock.forget();
     }
 
+    //Span export
+
     /**
-     * Waits for a response for an url matching a regex.
+     * Exports a span for every action to otel/spans.jsonl in the files section, as OTLP JSON. Requests from the
+     * browser to the origin of the first page of the context get a traceparent header, so backend spans join the
+     * trace. Disabling span export also stops adding the header.
      *
-     * @param urlRegex regex of the url that should respond.
+     * @param export true to export spans
      */
-    public void waitForResponseFromUrlMatching(String urlRegex) {
-        currentPage.waitForResponse(Pattern.compile(urlRegex), () -> {
-        });
+    public void setSpanExport(boolean export) {
+        tracer.setEnabled(export);
+        tracer.propagateTo(browserContext);
     }
 
     /**
-     * Mocks an endpoint to return a given body.
+     * Adds the traceparent header to requests to urls matching a regex, instead of to requests to the origin of the
+     * first page of the context. Applies to contexts opened after this call.
      *
-     * @param url  url to mock
-     * @param body response body to return when mocked url is called.
+     * @param urlRegex regex urls should match
      */
-    public void setUrlToReturnBody(String url, String body) {
-        browserContext.route(url, route -> route.fulfill(new Route.FulfillOptions().setBody(body)));
+    public void setTraceparentUrlPattern(String urlRegex) {
+        tracer.setPropagationUrlPattern(urlRegex);
     }
 
-    //Helper methods
-
     /**
-     * Helper function returning a Locator object based on a selector string and an locationOptions object.
+     * Records the arguments of every action in its span. As arguments may contain secrets, they are not recorded by
+     * default.
      *
-     * @param selector       playwright selector string
-     * @param locatorOptions playwright locator options
-     * @return locator of an element on the current page
+     * @param record true to record arguments
      */
-    private Locator getLocator(String selector, Page.LocatorOptions locatorOptions) {
-        return currentPage.locator(selector, locatorOptions);
+    public void setSpanArgumentRecording(boolean record) {
+        tracer.setRecordArguments(record);
     }
 
     /**
-     * Helper function returning a Locator object based on a selector string.
+     * Starts the parent span of the actions on a test page.
+     * Usage: | start tracing page | ${PAGE_NAME} |
      *
-     * @param selector playwright selector string
+     * @param name name of the test page
+     */
+    public void startTracingPage(String name) {
+        tracer.startPage(name);
+    }
+
+    /**
+     * Ends the parent span of the actions on the current test page.
+     */
+    public void endTracingPage() {
+        Tracer.endPage();
+    }
+
+    //Selector costs
+
+    /**
+     * Measures the resolution time, match count and DOM size of every selector used, and collects cheaper
+     * alternatives for the elements they match. Measurements of all fixtures in the run are combined.
+     *
+     * @param analyze true to measure selectors
+     */
+    public void setSelectorCostAnalysis(boolean analyze) {
+        selectorCostAnalyzer.setEnabled(analyze);
+    }
+
+    /**
+     * Gets the most expensive selectors measured in this run, ranked by total resolution time.
+     * Usage: | show | most expensive selectors | 10 |
+     *
+     * @param count maximum number of selectors
+     * @return map with the selector as key and its cost and suggested alternatives as value
+     */
+    public Map<String, String> mostExpensiveSelectors(int count) {
+        return SelectorCostAnalyzer.mostExpensive(count);
+    }
+
+    /**
+     * Writes a report of all selectors measured in this run, ranked by total resolution time, to the selector-costs
+     * folder in the files section.
+     *
+     * @return link to the report
+     */
+    public String selectorCostReport() {
+        var reportFile = Paths.get(getEnvironment().getFitNesseFilesSectionDir(), "selector-costs", "selector-costs.tsv");
+        try {
+            SelectorCostAnalyzer.writeReport(reportFile);
+        } catch (IOException e) {
+            throw new SlimFixtureException("Exception: could not write selector cost report: " + e.getMessage(), e);
+        }
+        return String.format("<a href=\"%s\" target=\"_blank\">%s</a>",
+                getWikiUrl(reportFile.toAbsolutePath().toString()), reportFile.getFileName());
+    }
+
+    /**
+     * Discards the selector measurements of this run.
+     */
+    public void resetSelectorCosts() {
+        SelectorCostAnalyzer.reset();
+    }
+
+    //Debugging
+
+    /**
+     * Calling pause() starts the PlayWright Inspector, but only when NOT running headless!
+     * Scripts recorded in the Playwright Inspector can not be used in FitNesse, but the inspector might be useful
+     * when finding and debugging selectors.
+     */
+    public void debug() {
+        currentPage.pause();
+    }
+
+    /**
+     * Gets current page object. Useful for fixture debugging.
+     *
+     * @return string representation of current page object
+     */
+    public String getCurrentPage() {
+        return currentPage.toString();
+    }
+
+    /**
+     * Gets the frame selectors of the current frame scope. Useful for fixture debugging.
+     *
+     * @return string representation of the current frame scope, outermost frame first
+     */
+    public String getFrameScope() {
+        return frameManager.getScope();
+    }
+
+    /**
+     * Gets current page index.
+     * Usage: | show | get current page index |
+     * Usage: | $var= | get current page index |
+     *
+     * @return int representation of current page index
+     */
+    public int getCurrentPageIndex() { return getPageIndex(currentPage); }
+
+    /**
+     * Gets list of all pages in current browser context. Useful for fixture debugging.
+     *
+     * @return string representation of current pages list
+     */
+    public String getPages() {
+        return getPageList().toString();
+    }
+
+    /**
+     * Get all browser contexts. Useful for fixture debugging.
+     *
+     * @return string representation of all browser context.
+     */
+    public String getContexts() {
+        return requireBrowser().contexts().toString();
+    }
+
+    /**
+     * Get current browser context.
+     *
+     * @return string representation of current browser context
+     */
+    public String getCurrentContext() {
+        return browserContext.toString();
+    }
+
+    //Manage re-usable state
+
+    /**
+     * Saves current storage state in memory.
+     */
+    public void saveStorageState() {
+        storageState = browserContext.storageState();
+    }
+
+    /**
+     * Saves current storage state as a json file
+     *
+     * @param name name of the json file without extension
+     */
+    public void saveStorageStateToFile(String name) {
+        browserContext.storageState(new BrowserContext.StorageStateOptions().setPath(Paths.get(storageStateFolder + "/" + name + ".json")));
+    }
+
+    /**
+     * Gets the saved storage state from memory.
+     *
+     * @return storage state
+     */
+    public String getStorageState() {
+        return storageState;
+    }
+
+    /**
+     * Open a new browser context with a saved storage state
+     */
+    public void openNewContextWithSavedStorageState() {
+        useContext(PlaywrightSetup.getResourceMonitor().openContext(browserContext, () ->
+                requireBrowser().newContext(PlaywrightSetup.getNewContextOptions().setStorageState(getStorageState()))));
+        setTimeout(timeout);
+    }
+
+    /**
+     * Opens a new browser context with a storage state from file.
+     *
+     * @param name name of the storage state file
+     */
+    public void openNewContextWithSavedStorageStateFromFile(String name) {
+        try {
+            useContext(PlaywrightSetup.getResourceMonitor().openContext(browserContext, () ->
+                    requireBrowser().newContext(PlaywrightSetup.getNewContextOptions().setStorageStatePath(Paths.get(storageStateFolder + "/" + name + ".json")))));
+
+        } catch (Exception e) {
+            throw new SlimFixtureException(e.getMessage());
+        }
+    }
+
+    //Tracing
+
+    /**
+     * Starts a trace
+     */
+    public void startTrace() {
+        browserContext.tracing().start(new Tracing.StartOptions().setScreenshots(true).setSnapshots(true).setSources(false));
+    }
+
+    /**
+     * Save a trace to file with a given name.
+     *
+     * @param name name of the trace file
+     */
+    public void saveTrace(String name) {
+        browserContext.tracing().stop(new Tracing.StopOptions().setPath(Paths.get(tracesFolder + "/" + name + ".zip")));
+    }
+
+    /**
+     * Opens a trace file.
+     *
+     * @param name name of the trace to open.
+     * @throws IOException
+     * @throws InterruptedException
+     * @deprecated Does not work properly. Not all images are loaded. Using
+     * mvn exec:java -e -D exec.mainClass=com.microsoft.playwright.CLI -D exec.args="show-trace trace.zip" is preferred.
+     */
+    @Deprecated(since = "1.4.0")
+    public void openTrace(String name) throws IOException, InterruptedException {
+        String[] args = {"show-trace", tracesFolder + "/" + name + ".zip"};
+        CLI.main(args);
+    }
+
+    //Network
+
+    /**
+     * Opens a page and waits for a response from another server.
+     *
+     * @param openUrl     url to open.
+     * @param responseUrl url that should be called during loading of the page.
+     */
+    public void openAndWaitForResponseFromUrl(String openUrl, String responseUrl) {
+        this.currentPage = browserContext.newPage();
+        waitForResponse(responseUrl, () -> navigateTo(openUrl));
+    }
+
+    /**
+     * Clicks an element and waits for a response from a given url.
+     *
+     * @param selector Playwright selector to locate element to click on.
+     * @param url      url that should respond after clicking
+     */
+    public void clickAndWaitForResponseFromUrl(String selector, String url) {
+        waitForResponse(url, () -> this.click(selector));
+    }
+
+    /**
+     * Clicks an element and waits for the resulting request to finish.
+     *
+     * @param selector Playwright selector to locate element to click on.
+     */
+    public void clickAndWaitForRequestFinished(String selector) {
+        currentPage.waitForRequestFinished(() -> this.click(selector));
+    }
+
+    /**
+     * Selects an element and waits for a response from a given url.
+     *
+     * @param selector Playwright selector to locate element to select.
+     * @param url      url that should respond after selecting
+     */
+    public void selectAndWaitForResponseFromUrl(String selector, String url) {
+        var marker = responseJournal.journal(currentPage).marker();
+        selectCheckbox(selector);
+        responseJournal.waitFor(browserContext, currentPage, url, marker, timeout);
+    }
+
+    /**
+     * Selects an element and wait for the resulting request to finish.
+     *
+     * @param selector Playwright selector to locate element to select.
+     */
+    public void selectAndWaitForRequestFinished(String selector) {
+        currentPage.waitForRequestFinished(() -> this.selectCheckbox(selector));
+    }
+
+    /**
+     * Enters and value into an element and waits for a response from a given url.
+     *
+     * @param value    value to enter
+     * @param selector Playwright selector to locate element to enter the value into.
+     * @param url      url that should respond after entering the value
+     */
+    public void enterIntoAndWaitForResponseFromUrl(String value, String selector, String url) {
+        waitForResponse(url, () -> this.enterInto(value, selector));
+    }
+
+    /**
+     * Waits for a response for an url matching a regex, received since the start of the previous action on the current
+     * page and not consumed by an earlier wait. A response the action triggered is found even when it arrived before
+     * this call. Use {@link PlaywrightFixture#waitForResponseFromUrlMatchingSince(String, long)} to wait for responses
+     * received since another step.
+     *
+     * @param urlRegex regex of the url that should respond.
+     */
+    public void waitForResponseFromUrlMatching(String urlRegex) {
+        responseJournal.waitFor(browserContext, currentPage, urlRegex, previousActionResponseMarker(), timeout);
+    }
+
+    /**
+     * Gets a marker for the last response received by the current page.
+     * Usage: | $marker= | response marker |
+     *
+     * @return marker to use with {@link PlaywrightFixture#waitForResponseFromUrlMatchingSince(String, long)}
+     */
+    public long responseMarker() {
+        return responseJournal.journal(currentPage).marker();
+    }
+
+    /**
+     * Waits for a response for an url matching a regex, received after a marker.
+     * Usage: | wait for response from url matching | [urlRegex] | since | $marker |
+     *
+     * @param urlRegex regex of the url that should respond.
+     * @param marker   marker taken using {@link PlaywrightFixture#responseMarker()}
+     */
+    public void waitForResponseFromUrlMatchingSince(String urlRegex, long marker) {
+        responseJournal.waitFor(browserContext, currentPage, urlRegex, marker, timeout);
+    }
+
+    /**
+     * Waits for a response for an url matching a regex, like
+     * {@link PlaywrightFixture#waitForResponseFromUrlMatching(String)}, and returns its status. Use
+     * {@link PlaywrightFixture#statusOfLastResponseFromUrlMatching(String)} for the last response, consumed or not.
+     * Usage: | check | status of response from url matching | [urlRegex] | 200 |
+     *
+     * @param urlRegex regex of the url that should respond.
+     * @return http status of the response
+     */
+    public int statusOfResponseFromUrlMatching(String urlRegex) {
+        return responseJournal.waitFor(browserContext, currentPage, urlRegex, previousActionResponseMarker(), timeout).getStatus();
+    }
+
+    /**
+     * Gets the time between request start and response start of the last response received for an url matching a
+     * regex.
+     *
+     * @param urlRegex regex of the url
+     * @return response time in milliseconds
+     */
+    public double responseTimeOfLastResponseFromUrlMatching(String urlRegex) {
+        return lastResponseFromUrlMatching(urlRegex).getResponseTime();
+    }
+
+    /**
+     * Gets the status of the last response received for an url matching a regex, without waiting.
+     *
+     * @param urlRegex regex of the url
+     * @return http status of the response
+     */
+    public int statusOfLastResponseFromUrlMatching(String urlRegex) {
+        return lastResponseFromUrlMatching(urlRegex).getStatus();
+    }
+
+    /**
+     * Counts the recorded responses for urls matching a regex.
+     *
+     * @param urlRegex regex of the url
+     * @return number of responses
+     */
+    public int numberOfResponsesFromUrlMatching(String urlRegex) {
+        return responseJournal.journal(currentPage).count(responseJournal.pattern(urlRegex));
+    }
+
+    /**
+     * Sets the number of responses recorded per page. Applies to pages opened after this call. Defaults to 500.
+     *
+     * @param size number of responses to keep per page
+     */
+    public void setResponseJournalSize(int size) {
+        responseJournal.setCapacity(size);
+    }
+
+    private ResponseJournal.Entry lastResponseFromUrlMatching(String urlRegex) {
+        var entry = responseJournal.journal(currentPage).findLast(responseJournal.pattern(urlRegex));
+        if (entry == null) {
+            throw new SlimFixtureException(false, "No response received from url matching: " + urlRegex);
+        }
+        return entry;
+    }
+
+    /**
+     * Mocks an endpoint to return a given body.
+     *
+     * @param url  url to mock
+     * @param body response body to return when mocked url is called.
+     */
+    public void setUrlToReturnBody(String url, String body) {
+        browserContext.route(url, route -> route.fulfill(new Route.FulfillOptions().setBody(body)));
+    }
+
+    //Memory
+
+    /**
+     * Samples the JS heap, DOM node count and event listener count of the current page after every action on the
+     * page, to detect memory leaks. Getters, checks and setters are not followed by a sample. Only supported for
+     * Chromium. A sample that can not be taken does not fail the action.
+     *
+     * @param monitor true to sample after every action
+     */
+    public void setMemoryMonitoring(boolean monitor) {
+        if (monitor) {
+            memoryMonitor.attach(browserContext, currentPage);
+        }
+        memoryMonitor.setEnabled(monitor);
+    }
+
+    /**
+     * Sets whether garbage is collected before every memory sample. Defaults to true, so the heap size reflects
+     * retained memory only.
+     *
+     * @param collectGarbage true to collect garbage before sampling
+     */
+    public void setMemoryMonitoringGarbageCollection(boolean collectGarbage) {
+        memoryMonitor.setCollectGarbage(collectGarbage);
+    }
+
+    /**
+     * Takes a memory sample of the current page, also when memory monitoring is not enabled.
+     *
+     * @return description of the sample
+     */
+    public String sampleMemory() {
+        return memoryMonitor.sample(browserContext, currentPage, "sample memory");
+    }
+
+    /**
+     * Gets the memory samples of the current page, oldest first.
+     *
+     * @return one line per sample
+     */
+    public List<String> memorySamples() {
+        return memoryMonitor.series(currentPage).describe();
+    }
+
+    /**
+     * Gets the growth of the JS heap of the current page over the last steps.
+     * Usage: | show | heap growth over last steps in megabytes | 20 |
+     *
+     * @param steps number of steps
+     * @return growth in megabytes
+     */
+    public double heapGrowthOverLastStepsInMegabytes(int steps) {
+        return memoryMonitor.series(currentPage).heapGrowth(steps) / (1024.0 * 1024);
+    }
+
+    /**
+     * Checks that the JS heap of the current page grew less than a maximum over the last steps.
+     * Usage: | ensure | heap growth over last | 20 | steps is below megabytes | 5 |
+     *
+     * @param steps     number of steps
+     * @param megabytes maximum growth in megabytes
+     * @return true when the heap grew less than the maximum
+     */
+    public boolean heapGrowthOverLastStepsIsBelowMegabytes(int steps, double megabytes) {
+        return heapGrowthOverLastStepsInMegabytes(steps) < megabytes;
+    }
+
+    /**
+     * Gets the growth of the number of DOM nodes of the current page over the last steps.
+     *
+     * @param steps number of steps
+     * @return growth in number of nodes
+     */
+    public long domNodeGrowthOverLastSteps(int steps) {
+        return memoryMonitor.series(currentPage).nodeGrowth(steps);
+    }
+
+    /**
+     * Gets the growth of the number of event listeners of the current page over the last steps.
+     *
+     * @param steps number of steps
+     * @return growth in number of listeners
+     */
+    public long eventListenerGrowthOverLastSteps(int steps) {
+        return memoryMonitor.series(currentPage).listenerGrowth(steps);
+    }
+
+    //Snapshots
+
+    /**
+     * Stores the ARIA snapshot of an element as baseline.
+     * Usage: | save aria snapshot of | [selector] | as | [name] |
+     *
+     * @param selector Playwright selector of the element
+     * @param name     name of the baseline
+     */
+    public void saveAriaSnapshotOfAs(String selector, String name) {
+        saveSnapshot(snapshotFile(name, "aria"), getLocator(selector).ariaSnapshot());
+    }
+
+    /**
+     * Stores the normalised DOM snapshot of an element as baseline.
+     * Usage: | save dom snapshot of | [selector] | as | [name] |
+     *
+     * @param selector Playwright selector of the element
+     * @param name     name of the baseline
+     */
+    public void saveDomSnapshotOfAs(String selector, String name) {
+        saveSnapshot(snapshotFile(name, "dom"), (String) getLocator(selector).evaluate(StructuralSnapshot.DOM_SNAPSHOT));
+    }
+
+    /**
+     * Compares the ARIA snapshot of an element to a baseline. Without a baseline the comparison fails, unless
+     * missing baselines are created. The differences can be shown using {@link PlaywrightFixture#snapshotDifferences()}.
+     * Usage: | ensure | aria snapshot of | [selector] | matches | [name] |
+     *
+     * @param selector Playwright selector of the element
+     * @param name     name of the baseline
+     * @return true when the snapshot equals the baseline
+     */
+    public boolean ariaSnapshotOfMatches(String selector, String name) {
+        return matchesSnapshot(snapshotFile(name, "aria"), getLocator(selector).ariaSnapshot());
+    }
+
+    /**
+     * Compares the normalised DOM snapshot of an element to a baseline. Without a baseline the comparison fails, unless
+     * missing baselines are created. The differences can be shown using {@link PlaywrightFixture#snapshotDifferences()}.
+     * Usage: | ensure | dom snapshot of | [selector] | matches | [name] |
+     *
+     * @param selector Playwright selector of the element
+     * @param name     name of the baseline
+     * @return true when the snapshot equals the baseline
+     */
+    public boolean domSnapshotOfMatches(String selector, String name) {
+        return matchesSnapshot(snapshotFile(name, "dom"), (String) getLocator(selector).evaluate(StructuralSnapshot.DOM_SNAPSHOT));
+    }
+
+    /**
+     * Sets whether a snapshot comparison without a baseline stores the snapshot as baseline and passes. By default it
+     * fails and stores the snapshot as name.type.actual.txt, to review and rename.
+     *
+     * @param create true to create missing baselines
+     */
+    public void setCreateMissingSnapshotBaselines(boolean create) {
+        createMissingSnapshotBaselines = create;
+    }
+
+    /**
+     * Gets the changed, added and removed subtrees found by the last snapshot comparison.
+     *
+     * @return list of differences
+     */
+    public List<String> snapshotDifferences() {
+        return snapshotDifferences;
+    }
+
+    //Link checking
+
+    /**
+     * Checks all links and assets on the current page concurrently over HTTP, with the cookies and options of the
+     * current context. The results can be shown using the link check results query table. Every url is requested, so
+     * exclude links with side effects, like logging out, using
+     * {@link PlaywrightFixture#setLinkCheckExcludeUrlsMatching(String)}.
+     * Usage: | check | check links on current page | 0 |
+     *
+     * @return number of broken links and assets
+     */
+    public int checkLinksOnCurrentPage() {
+        return (int) linkChecker.check(browserContext, currentPage, PlaywrightSetup.getNewContextOptions(), PlaywrightSetup.getLaunchOptions().proxy)
+                .stream().filter(LinkChecker.Result::isBroken).count();
+    }
+
+    /**
+     * Sets a regex of urls the link check does not request, e.g. logout links.
+     * Usage: | set link check exclude urls matching | /logout |
+     *
+     * @param urlRegex regex of the urls to skip
+     */
+    public void setLinkCheckExcludeUrlsMatching(String urlRegex) {
+        linkChecker.setExcludePattern(urlRegex);
+    }
+
+    /**
+     * Sets whether the link check only requests urls on the origin of the current page. Defaults to false.
+     *
+     * @param sameOriginOnly true to skip urls on other origins
+     */
+    public void setLinkCheckSameOriginOnly(boolean sameOriginOnly) {
+        linkChecker.setSameOriginOnly(sameOriginOnly);
+    }
+
+    /**
+     * Gets the number of links and assets slower than the slow threshold in the last link check.
+     *
+     * @return number of slow links and assets
+     */
+    public int numberOfSlowLinks() {
+        return (int) LinkChecker.getLastResults().stream().filter(LinkChecker.Result::isSlow).count();
+    }
+
+    /**
+     * Sets the maximum number of link check requests in flight. Defaults to 8.
+     *
+     * @param parallelism maximum number of concurrent requests
+     */
+    public void setLinkCheckParallelism(int parallelism) {
+        linkChecker.setParallelism(parallelism);
+    }
+
+    /**
+     * Sets the maximum number of link check requests per second to a single host. Defaults to 10.
+     *
+     * @param requestsPerSecond maximum requests per second per host, 0 for no limit
+     */
+    public void setLinkCheckRequestsPerSecondPerHost(double requestsPerSecond) {
+        linkChecker.setRequestsPerSecondPerHost(requestsPerSecond);
+    }
+
+    /**
+     * Sets how deep links to pages on the same host are followed. Defaults to 0: only the urls on the current page
+     * are checked.
+     *
+     * @param depth maximum depth
+     */
+    public void setLinkCheckDepth(int depth) {
+        linkChecker.setDepth(depth);
+    }
+
+    /**
+     * Sets the duration above which a link or asset is reported as slow. Defaults to 1000.
+     *
+     * @param milliseconds slow threshold in milliseconds
+     */
+    public void setSlowLinkThresholdMilliseconds(long milliseconds) {
+        linkChecker.setSlowThresholdMillis(milliseconds);
+    }
+
+    //Fault injection
+
+    /**
+     * Adds latency to every request of the pages of the current context and contexts opened later. Only supported on
+     * Chromium.
+     * Usage: | set network latency milliseconds | 2000 |
+     *
+     * @param milliseconds latency in milliseconds, 0 for none
+     */
+    public void setNetworkLatencyMilliseconds(long milliseconds) {
+        faultInjector.setLatency(milliseconds);
+        applyFaultInjection();
+    }
+
+    /**
+     * Limits the bandwidth of the pages of the current context and contexts opened later. Only supported on Chromium.
+     * Usage: | set network bandwidth kilobytes per second | 50 |
+     *
+     * @param kilobytesPerSecond bandwidth in kilobytes per second, 0 for no limit
+     */
+    public void setNetworkBandwidthKilobytesPerSecond(long kilobytesPerSecond) {
+        faultInjector.setBandwidth(kilobytesPerSecond);
+        applyFaultInjection();
+    }
+
+    /**
+     * Adds latency to requests of the pages of the current context and contexts opened later, for urls matching a URL
+     * pattern. The pattern uses the URL pattern syntax (https://urlpattern.spec.whatwg.org/), not a regex. Every
+     * matching request gets the same latency, random latencies are not supported. Only supported on Chromium.
+     * Usage: | delay urls matching | https://example.com/api/* | by milliseconds | 2000 |
+     *
+     * @param urlPattern   absolute URL pattern of the urls to delay
+     * @param milliseconds latency in milliseconds
+     */
+    public void delayUrlsMatchingByMilliseconds(String urlPattern, long milliseconds) {
+        faultInjector.addLatency(urlPattern, milliseconds);
+        applyFaultInjection();
+    }
+
+    /**
+     * Limits the bandwidth of requests of the pages of the current context and contexts opened later, for urls
+     * matching a URL pattern. The pattern uses the URL pattern syntax, not a regex. Only supported on Chromium.
+     * Usage: | limit bandwidth of urls matching | https://example.com/files/* | to kilobytes per second | 50 |
+     *
+     * @param urlPattern         absolute URL pattern of the urls to limit
+     * @param kilobytesPerSecond bandwidth in kilobytes per second, 0 for no limit
+     */
+    public void limitBandwidthOfUrlsMatchingToKilobytesPerSecond(String urlPattern, long kilobytesPerSecond) {
+        faultInjector.addBandwidthLimit(urlPattern, kilobytesPerSecond);
+        applyFaultInjection();
+    }
+
+    /**
+     * Responds to requests for urls matching a regex with an error status.
+     * Usage: | fail urls matching | [urlRegex] | with status | 503 |
+     *
+     * @param urlRegex regex of the urls to fail
+     * @param status   http status to respond with
+     */
+    public void failUrlsMatchingWithStatus(String urlRegex, int status) {
+        faultInjector.addStatus(urlRegex, status);
+        applyFaultInjection();
+    }
+
+    /**
+     * Aborts requests for urls matching a regex.
+     * Usage: | abort urls matching | [urlRegex] | with error | connectionreset |
+     *
+     * @param urlRegex  regex of the urls to abort
+     * @param errorCode error code: aborted, accessdenied, addressunreachable, blockedbyclient, blockedbyresponse,
+     *                  connectionaborted, connectionclosed, connectionfailed, connectionrefused, connectionreset,
+     *                  internetdisconnected, namenotresolved, timedout or failed
+     */
+    public void abortUrlsMatchingWithError(String urlRegex, String errorCode) {
+        faultInjector.addAbort(urlRegex, errorCode);
+        applyFaultInjection();
+    }
+
+    /**
+     * Truncates the bodies of responses for urls matching a regex.
+     * Usage: | truncate responses of urls matching | [urlRegex] | to percent | 50 |
+     *
+     * @param urlRegex   regex of the urls to truncate the responses of
+     * @param percentage percentage of the body to keep, between 0 and 100
+     */
+    public void truncateResponsesOfUrlsMatchingToPercent(String urlRegex, int percentage) {
+        faultInjector.addTruncate(urlRegex, percentage);
+        applyFaultInjection();
+    }
+
+    /**
+     * Sets the probability the fault injection rule added last is applied to a matching request.
+     * Usage: | with probability | 0.25 |
+     *
+     * @param probability probability between 0 and 1
+     */
+    public void withProbability(double probability) {
+        faultInjector.setProbabilityOfLastRule(probability);
+    }
+
+    /**
+     * Sets the seed of the random numbers used for the probabilities of fault injection rules, to make a run repeatable.
+     *
+     * @param seed random seed
+     */
+    public void setFaultInjectionSeed(long seed) {
+        faultInjector.setSeed(seed);
+    }
+
+    /**
+     * Removes all fault injection rules and stops emulating network latency and bandwidth.
+     */
+    public void clearFaultInjectionRules() {
+        faultInjector.clear();
+        applyFaultInjection();
+    }
+
+    /**
+     * Gets how often every fault injection rule was applied.
+     *
+     * @return map with the rule as key and the number of requests it was applied to as value
+     */
+    public Map<String, Integer> faultInjectionCounts() {
+        return faultInjector.counts();
+    }
+
+    //Downloads
+
+    /**
+     * Clicks an element and saves the download it starts to the downloads folder. Downloads must be accepted, see
+     * {@link PlaywrightSetup#setAcceptDownloads(Boolean)}.
+     * Usage: | click and wait for download | [selector] |
+     *
+     * @param selector playwright selector to locate element to click on
+     * @return link to the saved download
+     */
+    public String clickAndWaitForDownload(String selector) {
+        return downloadLink(downloadManager.waitForDownload(currentPage, () -> click(selector)));
+    }
+
+    /**
+     * Starts collecting all downloads started on the current page, to wait for them using
+     * {@link PlaywrightFixture#waitForDownloads(int)}.
+     */
+    public void startCollectingDownloads() {
+        downloadManager.startCollecting(currentPage);
+    }
+
+    /**
+     * Stops collecting downloads started on the current page.
+     */
+    public void stopCollectingDownloads() {
+        downloadManager.stopCollecting();
+    }
+
+    /**
+     * Waits until the given number of downloads has been started and saves them all to the downloads folder.
+     * Usage: | wait for downloads | [count] |
+     *
+     * @param count number of downloads to wait for
+     * @return links to the saved downloads
+     */
+    public String waitForDownloads(int count) {
+        return downloadManager.waitForDownloads(browserContext, count, timeout).stream()
+                .map(this::downloadLink)
+                .collect(Collectors.joining("<br/>"));
+    }
+
+    /**
+     * Gets the SHA-256 checksum of the last saved download.
+     *
+     * @return hex encoded checksum
+     */
+    public String downloadSha256() {
+        return downloadManager.getDownload(null).getSha256();
+    }
+
+    /**
+     * Gets the SHA-256 checksum of a saved download.
+     *
+     * @param fileName file name of the download
+     * @return hex encoded checksum
+     */
+    public String downloadSha256Of(String fileName) {
+        return downloadManager.getDownload(fileName).getSha256();
+    }
+
+    /**
+     * Gets the size of the last saved download.
+     *
+     * @return size in bytes
+     */
+    public long downloadSize() {
+        return downloadManager.getDownload(null).getSize();
+    }
+
+    /**
+     * Gets the size of a saved download.
+     *
+     * @param fileName file name of the download
+     * @return size in bytes
+     */
+    public long downloadSizeOf(String fileName) {
+        return downloadManager.getDownload(fileName).getSize();
+    }
+
+    /**
+     * Counts the lines of the last saved download.
+     *
+     * @return number of lines
+     */
+    public long downloadLineCount() {
+        return downloadManager.getDownload(null).lineCount();
+    }
+
+    /**
+     * Counts the lines of a saved download.
+     *
+     * @param fileName file name of the download
+     * @return number of lines
+     */
+    public long downloadLineCountOf(String fileName) {
+        return downloadManager.getDownload(fileName).lineCount();
+    }
+
+    /**
+     * Gets the first line of the last saved download, for instance the header of a CSV file.
+     *
+     * @return first line
+     */
+    public String downloadHeader() {
+        return downloadManager.getDownload(null).firstLine();
+    }
+
+    /**
+     * Gets the first line of a saved download, for instance the header of a CSV file.
+     *
+     * @param fileName file name of the download
+     * @return first line
+     */
+    public String downloadHeaderOf(String fileName) {
+        return downloadManager.getDownload(fileName).firstLine();
+    }
+
+    /**
+     * Checks if a line of the last saved download contains a text.
+     *
+     * @param text text to look for
+     * @return true when a line contains the text
+     */
+    public boolean downloadContains(String text) {
+        return downloadManager.getDownload(null).containsLine(text);
+    }
+
+    //API requests
+
+    /**
+     * Sets a header that is sent with all following API requests.
+     *
+     * @param name  header name
+     * @param value header value
+     */
+    public void setApiHeaderTo(String name, String value) {
+        apiClient.setHeader(name, value);
+    }
+
+    /**
+     * Removes all headers set using {@link PlaywrightFixture#setApiHeaderTo(String, String)}.
+     */
+    public void clearApiHeaders() {
+        apiClient.clearHeaders();
+    }
+
+    /**
+     * Sends a GET request that shares the cookies and base url of the current browser context.
+     * Usage: | api get from | [url] |
+     *
+     * @param url url to send the request to, relative to the base url
+     * @return true when the response status is 2xx
+     */
+    public boolean apiGetFrom(String url) {
+        return apiClient.send(browserContext, "GET", url, null).isOk();
+    }
+
+    /**
+     * Sends a POST request that shares the cookies and base url of the current browser context.
+     * Usage: | api post | [body] | to | [url] |
+     *
+     * @param body request body, sent as JSON unless another content type header was set
+     * @param url  url to send the request to, relative to the base url
+     * @return true when the response status is 2xx
+     */
+    public boolean apiPostTo(String body, String url) {
+        return apiClient.send(browserContext, "POST", url, body).isOk();
+    }
+
+    /**
+     * Sends a PUT request that shares the cookies and base url of the current browser context.
+     * Usage: | api put | [body] | to | [url] |
+     *
+     * @param body request body, sent as JSON unless another content type header was set
+     * @param url  url to send the request to, relative to the base url
+     * @return true when the response status is 2xx
+     */
+    public boolean apiPutTo(String body, String url) {
+        return apiClient.send(browserContext, "PUT", url, body).isOk();
+    }
+
+    /**
+     * Sends a PATCH request that shares the cookies and base url of the current browser context.
+     * Usage: | api patch | [body] | to | [url] |
+     *
+     * @param body request body, sent as JSON unless another content type header was set
+     * @param url  url to send the request to, relative to the base url
+     * @return true when the response status is 2xx
+     */
+    public boolean apiPatchTo(String body, String url) {
+        return apiClient.send(browserContext, "PATCH", url, body).isOk();
+    }
+
+    /**
+     * Sends a DELETE request that shares the cookies and base url of the current browser context.
+     * Usage: | api delete | [url] |
+     *
+     * @param url url to send the request to, relative to the base url
+     * @return true when the response status is 2xx
+     */
+    public boolean apiDelete(String url) {
+        return apiClient.send(browserContext, "DELETE", url, null).isOk();
+    }
+
+    /**
+     * Gets the status code of the last API response.
+     *
+     * @return status code
+     */
+    public int apiResponseStatus() {
+        return apiClient.getLastResponse().getStatus();
+    }
+
+    /**
+     * Gets the body of the last API response.
+     *
+     * @return response body
+     */
+    public String apiResponse() {
+        return apiClient.getLastResponse().getBody();
+    }
+
+    /**
+     * Gets a header of the last API response.
+     *
+     * @param name header name
+     * @return header value, or null when not present
+     */
+    public String apiResponseHeader(String name) {
+        return apiClient.getLastResponse().getHeader(name);
+    }
+
+    /**
+     * Extracts a value from the JSON body of the last API response.
+     * Usage: | $id= | api response json path | $.id |
+     *
+     * @param jsonPath JSONPath expression
+     * @return extracted value
+     */
+    public String apiResponseJsonPath(String jsonPath) {
+        return apiClient.getLastResponse().jsonPath(jsonPath);
+    }
+
+    /**
+     * Adds a GET request to the batch sent by {@link PlaywrightFixture#sendApiBatch()}.
+     *
+     * @param url url to send the request to, relative to the base url
+     */
+    public void batchApiGetFrom(String url) {
+        apiClient.addToBatch("GET", url, null);
+    }
+
+    /**
+     * Adds a POST request to the batch sent by {@link PlaywrightFixture#sendApiBatch()}.
+     * Usage: | batch api post | [body] | to | [url] |
+     *
+     * @param body request body, sent as JSON unless another content type header was set
+     * @param url  url to send the request to, relative to the base url
+     */
+    public void batchApiPostTo(String body, String url) {
+        apiClient.addToBatch("POST", url, body);
+    }
+
+    /**
+     * Adds a PUT request to the batch sent by {@link PlaywrightFixture#sendApiBatch()}.
+     *
+     * @param body request body, sent as JSON unless another content type header was set
+     * @param url  url to send the request to, relative to the base url
+     */
+    public void batchApiPutTo(String body, String url) {
+        apiClient.addToBatch("PUT", url, body);
+    }
+
+    /**
+     * Adds a DELETE request to the batch sent by {@link PlaywrightFixture#sendApiBatch()}.
+     *
+     * @param url url to send the request to, relative to the base url
+     */
+    public void batchApiDelete(String url) {
+        apiClient.addToBatch("DELETE", url, null);
+    }
+
+    /**
+     * Sets the maximum number of batched requests that are sent at the same time. Defaults to 8.
+     *
+     * @param concurrency maximum number of concurrent requests
+     */
+    public void setApiBatchConcurrency(int concurrency) {
+        apiClient.setBatchConcurrency(concurrency);
+    }
+
+    /**
+     * Sends all batched requests concurrently, using the cookies of the current browser context.
+     *
+     * @return true when all responses have a 2xx status
+     */
+    public boolean sendApiBatch() {
+        return apiClient.sendBatch(browserContext, PlaywrightSetup.getNewContextOptions(), PlaywrightSetup.getLaunchOptions().proxy).stream()
+                .allMatch(ApiClient.Response::isOk);
+    }
+
+    /**
+     * Gets the status code of a response of the last sent batch.
+     *
+     * @param index index of the request in the batch, starting at 0
+     * @return status code
+     */
+    public int apiBatchStatus(int index) {
+        return apiClient.getBatchResponse(index).getStatus();
+    }
+
+    /**
+     * Extracts a value from the JSON body of a response of the last sent batch.
+     * Usage: | $id= | api batch json path | $.id | of | 2 |
+     *
+     * @param jsonPath JSONPath expression
+     * @param index    index of the request in the batch, starting at 0
+     * @return extracted value
+     */
+    public String apiBatchJsonPathOf(String jsonPath, int index) {
+        return apiClient.getBatchResponse(index).jsonPath(jsonPath);
+    }
+
+    //Helper methods
+
+    @Override
+    protected Object invoke(FixtureInteraction interaction, Method method, Object[] arguments) throws Throwable {
+        var adaptive = adaptiveTimeouts.isEnabled();
+        var traced = tracer.isEnabled() && !UNTRACED_METHODS.contains(method.getName());
+        Throwable error = null;
+        if (adaptive) {
+            adaptiveTimeouts.startAction();
+        }
+        if (traced) {
+            tracer.startAction(method, arguments);
+        }
+        if (isPageAction(method) && !method.getName().startsWith("waitFor") && currentPage != null && !currentPage.isClosed()) {
+            actionPage = currentPage;
+            actionResponseMarker = responseJournal.journal(currentPage).marker();
+        }
+        Object result;
+        try {
+            result = super.invoke(interaction, method, arguments);
+            if (recording != null && Boolean.FALSE.equals(result)) {
+                // a false outcome fails a check
+                recording.markFailed();
+            }
+        } catch (Throwable t) {
+            error = t;
+            if (recording != null) {
+                recording.markFailed();
+            }
+            throw t;
+        } finally {
+            if (adaptive) {
+                adaptiveTimeouts.endAction(error == null);
+            }
+            if (traced) {
+                tracer.endAction(currentPage != null && !currentPage.isClosed() ? currentPage.url() : null, error);
+            }
+            if (selectorCostAnalyzer.isEnabled()) {
+                selectorCostAnalyzer.measureUsed();
+            }
+        }
+        if (memoryMonitor.isEnabled() && isPageAction(method)) {
+            try {
+                memoryMonitor.sample(browserContext, currentPage, method.getName());
+            } catch (RuntimeException e) {
+                // a missing sample does not fail the action
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Helper function returning the response marker taken at the start of the previous action. Waits do not count as
+     * actions. When the action opened or switched to another page, all responses of the current page are considered.
+     *
+     * @return marker of the previous action
+     */
+    private long previousActionResponseMarker() {
+        return currentPage == actionPage ? actionResponseMarker : 0;
+    }
+
+    /**
+     * Helper function performing an action and waiting for the response from an url matching a Playwright glob or
+     * regex that it triggers. The response is consumed in the response journal, so a later wait needs a new response.
+     *
+     * @param url    url glob or regex
+     * @param action action triggering the response
+     */
+    private void waitForResponse(String url, Runnable action) {
+        var journal = responseJournal.journal(currentPage);
+        var marker = journal.marker();
+        var response = currentPage.waitForResponse(url, action);
+        journal.consume(response.url(), marker);
+    }
+
+    /**
+     * Helper function deciding whether a fixture method is an action on the page: getters and checks return a value
+     * and setters change the fixture's settings.
+     *
+     * @param method invoked method
+     * @return true when the method may change the page
+     */
+    private static boolean isPageAction(Method method) {
+        return method.getReturnType() == void.class && !method.getName().startsWith("set");
+    }
+
+    /**
+     * Helper function returning a html link to a saved download.
+     *
+     * @param download saved download
+     * @return html link
+     */
+    private String downloadLink(DownloadManager.DownloadedFile download) {
+        return String.format("<a href=\"%s\" target=\"_blank\">%s</a>",
+                getWikiUrl(download.getPath().toAbsolutePath().toString()), download.getPath().getFileName());
+    }
+
+    /**
+     * Helper function returning the baseline file of a snapshot.
+     *
+     * @param name name of the snapshot
+     * @param type type of the snapshot: aria or dom
+     * @return the baseline file
+     * @throws SlimFixtureException when the name is not a plain file name
+     */
+    private Path snapshotFile(String name, String type) {
+        if (name.isEmpty() || name.contains("..") || name.contains("/") || name.contains("\\")) {
+            throw new SlimFixtureException("Unsupported snapshot name: " + name + ". Use a name without path separators or '..'!");
+        }
+        return new File(snapshotFolder, name + "." + type + ".txt").toPath();
+    }
+
+    private static Path actualSnapshotFile(Path baselineFile) {
+        return baselineFile.resolveSibling(baselineFile.getFileName().toString().replaceFirst("\\.txt$", ".actual.txt"));
+    }
+
+    /**
+     * Helper function storing a snapshot as baseline, preceded by the hash of its tree.
+     *
+     * @param file     baseline file
+     * @param snapshot indented snapshot
+     */
+    private void saveSnapshot(Path file, String snapshot) {
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, SNAPSHOT_HASH_PREFIX + StructuralSnapshot.parse(snapshot).getHash() + "\n" + snapshot);
+        } catch (IOException e) {
+            throw new SlimFixtureException("Exception: could not save snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Helper function comparing a snapshot to a baseline. When the hash of the baseline matches, the baseline is not
+     * parsed. When there is no baseline, or the snapshot differs, the snapshot is written next to the baseline with
+     * the extension .actual.txt, so it can be reviewed and used as baseline.
+     *
+     * @param file     baseline file
+     * @param snapshot indented snapshot
+     * @return true when the snapshot equals the baseline
+     */
+    private boolean matchesSnapshot(Path file, String snapshot) {
+        snapshotDifferences = new ArrayList<>();
+        var actualFile = actualSnapshotFile(file);
+        if (!Files.isRegularFile(file)) {
+            if (createMissingSnapshotBaselines) {
+                saveSnapshot(file, snapshot);
+                return true;
+            }
+            saveSnapshot(actualFile, snapshot);
+            snapshotDifferences.add("no baseline " + file.getFileName() + ", actual snapshot saved as " + actualFile.getFileName());
+            return false;
+        }
+        var current = StructuralSnapshot.parse(snapshot);
+        String baseline;
+        try {
+            baseline = Files.readString(file);
+        } catch (IOException e) {
+            throw new SlimFixtureException("Exception: could not read snapshot: " + e.getMessage(), e);
+        }
+        if (baseline.startsWith(SNAPSHOT_HASH_PREFIX)) {
+            var endOfHash = baseline.indexOf('\n');
+            if (baseline.substring(SNAPSHOT_HASH_PREFIX.length(), endOfHash).equals(current.getHash())) {
+                return true;
+            }
+            baseline = baseline.substring(endOfHash + 1);
+        }
+        snapshotDifferences = current.diff(StructuralSnapshot.parse(baseline));
+        if (snapshotDifferences.isEmpty()) {
+            return true;
+        }
+        saveSnapshot(actualFile, snapshot);
+        return false;
+    }
+
+    /**
+     * Helper function returning a folder in the FitNesse files section.
+     *
+     * @param name       name of the folder
+     * @param engineName name of a sub folder, or empty for none
+     * @return the folder
+     */
+    private File outputFolder(String name, String engineName) {
+        var folder = new File(getEnvironment().getFitNesseFilesSectionDir(), name);
+        return engineName.isEmpty() ? folder : new File(folder, engineName);
+    }
+
+    /**
+     * Helper function returning the browser to open new contexts in.
+     *
+     * @return the browser
+     * @throws SlimFixtureException when the browser was started with a persistent profile
+     */
+    private Browser requireBrowser() {
+        if (browser == null) {
+            throw new SlimFixtureException("Exception: no browser available to open a new context in. Not supported with a persistent profile.");
+        }
+        return browser;
+    }
+
+    /**
+     * Helper function making the given browser context the current one and tracking its tabs.
+     *
+     * @param context browser context to use
+     * @return the given browser context
+     */
+    private BrowserContext useContext(BrowserContext context) {
+        browserContext = context;
+        var contextRecording = PlaywrightSetup.getVideoRetention().track(context);
+        recording = contextRecording;
+        tabRegistry.attach(context);
+        helperRuntime.install(context);
+        faultInjector.applyTo(context);
+        tracer.propagateTo(context);
+        context.pages().forEach(page -> observePage(page, contextRecording));
+        context.onPage(page -> observePage(page, contextRecording));
+        virtualClock.applyTo(context);
+        return context;
+    }
+
+    /**
+     * Helper function recording the console messages, responses and video of a page.
+     *
+     * @param page             page to observe
+     * @param contextRecording recording of the page's context
+     */
+    private void observePage(Page page, VideoRetention.Recording contextRecording) {
+        consoleCollector.collect(page);
+        responseJournal.record(page);
+        if (page.video() != null) {
+            try {
+                contextRecording.addVideo(page.video().path());
+            } catch (PlaywrightException e) {
+                // video of a remote browser, not written locally
+            }
+        }
+    }
+
+    /**
+     * Helper function applying the fault injection rules to the current context. The traceparent route is moved in
+     * front of the fault injection route, so responses fetched by fault injection also get the header.
+     */
+    private void applyFaultInjection() {
+        if (faultInjector.applyTo(browserContext)) {
+            tracer.propagateTo(browserContext);
+        }
+    }
+
+    /**
+     * Helper function returning a Locator object based on a selector string and an locationOptions object.
+     *
+     * @param selector       playwright selector string
+     * @param locatorOptions playwright locator options
+     * @return locator of an element on the current page
+     */
+    private Locator getLocator(String selector, Frame.LocatorOptions locatorOptions) {
+        adaptiveTimeouts.useSelector(currentPage, selector, timeout);
+        return analyzed(selector, frameManager.frameFor(currentPage, selector).locator(selector, locatorOptions));
+    }
+
+    /**
+     * Helper function returning a Locator object based on a selector string.
+     *
+     * @param selector playwright selector string
      * @return locator of an element on the current page
      */
     private Locator getLocator(String selector) {
-        return currentPage.locator(selector);
+        adaptiveTimeouts.useSelector(currentPage, selector, timeout);
+        return analyzed(selector, frameManager.frameFor(currentPage, selector).locator(selector));
     }
 
     /**
@@ -1217,7 +2832,24 @@ public class PlaywrightFixture extends SlimFixture {
      * @return locator of an element on the current page
      */
     private Locator getLocator(String selector, String frame) {
-        return (frame.isEmpty()) ? getLocator(selector) : currentPage.frameLocator(frame).locator(selector);
+        if (frame.isEmpty()) {
+            return getLocator(selector);
+        }
+        adaptiveTimeouts.useSelector(currentPage, frame + " >> " + selector, timeout);
+        return analyzed(frame + " >> " + selector, frameManager.frame(currentPage, frame).locator(selector));
+    }
+
+    /**
+     * Helper function recording the selector of the current action, for tracing and selector cost analysis.
+     *
+     * @param selector selector as used in the wiki page
+     * @param locator  locator for the selector
+     * @return the locator
+     */
+    private Locator analyzed(String selector, Locator locator) {
+        tracer.useSelector(selector);
+        selectorCostAnalyzer.use(selector, locator);
+        return locator;
     }
 
     /**
@@ -1226,7 +2858,7 @@ public class PlaywrightFixture extends SlimFixture {
      * @return list of pages in current browser context
      */
     private List<Page> getPageList() {
-        return browserContext.pages();
+        return tabRegistry.pages();
     }
 
     /**
@@ -1237,7 +2869,7 @@ public class PlaywrightFixture extends SlimFixture {
      * @return index of the given page in the list of pages on current browser context. Returns -1 if not found.
      */
     private Integer getPageIndex(Page page) {
-        return getPageList().indexOf(page);
+        return tabRegistry.indexOf(page);
     }
 
     /**
@@ -1257,6 +2889,6 @@ public class PlaywrightFixture extends SlimFixture {
      * @return boolean true is the page is the last in the list of pages for the current browser context
      */
     private boolean isLastPage(Page page) {
-        return getPageIndex(page) == getPageList().size() - 1;
+        return getPageIndex(page) == tabRegistry.size() - 1;
     }
 }
\ No newline at end of file
@@ -1,8 +1,10 @@
 package nl.praegus.fitnesse.slim.fixtures.playwright;
 
 import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
 import com.microsoft.playwright.BrowserType;
 import com.microsoft.playwright.Playwright;
+import com.microsoft.playwright.impl.driver.Driver;
 import com.microsoft.playwright.options.ColorScheme;
 import com.microsoft.playwright.options.Proxy;
 import nl.hsac.fitnesse.fixture.slim.SlimFixture;
@@ -10,30 +12,335 @@ import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
 
 import java.io.File;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public final class PlaywrightSetup extends SlimFixture {
-    private static final Playwright playwright = Playwright.create();
+    private static final ExecutorService startupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "playwright-driver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<String, Long> startupTimings = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static Future<Void> driverPreparation;
+    private static Playwright playwright;
+    private static String pendingBrowserName;
     private static Browser browser;
+    private static BrowserContext persistentContext;
+    private static BrowserServer browserServer;
+    private static final ProfileManager profileManager =
+            new ProfileManager(Paths.get(System.getProperty("java.io.tmpdir"), "playwright-profiles"));
+    private static final List<BrowserEngine> engines = new ArrayList<>();
     private static final BrowserType.LaunchOptions launchOptions = new BrowserType.LaunchOptions();
     private static final Browser.NewContextOptions newContextOptions = new Browser.NewContextOptions();
+    private static final VideoRetention videoRetention = new VideoRetention();
+    private static final ResourceMonitor resourceMonitor = new ResourceMonitor();
     private final File harDir = new File(getEnvironment().getFitNesseFilesSectionDir(), "har");
+    private final File videoDir = new File(getEnvironment().getFitNesseFilesSectionDir(), "videos");
+    private int benchmarkRuns = 3;
+
+    public PlaywrightSetup() {
+        prepareDriver();
+    }
 
     public static void configureProxy(String server) {
         launchOptions.setProxy(new Proxy(server));
     }
 
     public static void startBrowser(String browserName) {
+        startBrowserInBackground(browserName);
+        getBrowser();
+    }
+
+    /**
+     * Returns immediately and defers the browser launch to the first fixture using the browser, so the driver
+     * preparation started by the playwright setup overlaps with the following tables. The browser is launched on the
+     * thread of that fixture, as Playwright instances may only be used from the thread that created them.
+     * Usage: | start browser in background | chromium |
+     *
+     * @param browserName name of the browser: Chromium, Firefox or Webkit
+     */
+    public static synchronized void startBrowserInBackground(String browserName) {
+        prepareDriver();
+        pendingBrowserName = browserName;
+    }
+
+    /**
+     * Gets the duration of the startup phases: preparing the driver (extracting it and checking the browser
+     * installation), creating the Playwright instance (driver startup) and launching the browser.
+     *
+     * @return map with the phase as key and its duration in milliseconds as value
+     */
+    public static Map<String, Long> startupTimings() {
+        synchronized (startupTimings) {
+            return new LinkedHashMap<>(startupTimings);
+        }
+    }
+
+    /**
+     * Prepares the Playwright driver on a background thread, unless that was already done: the driver is extracted,
+     * or a cached copy from an earlier run is used, and missing browsers are installed. No Playwright instance is
+     * created on the background thread.
+     *
+     * @return future that completes when the driver is prepared
+     */
+    private static synchronized Future<Void> prepareDriver() {
+        if (driverPreparation == null) {
+            driverPreparation = startupExecutor.submit(timed("driver preparation", () -> {
+                var driverCache = DriverCache.forCurrentVersion();
+                var cachedDriver = driverCache != null && driverCache.use();
+                Driver.ensureDriverInstalled(Collections.emptyMap(), true);
+                if (cachedDriver) {
+                    driverCache.installBrowsers();
+                } else if (driverCache != null) {
+                    driverCache.store();
+                }
+                return null;
+            }));
+        }
+        return driverPreparation;
+    }
+
+    /**
+     * Gets the Playwright instance, creating it on the calling thread when needed.
+     *
+     * @return the Playwright instance
+     */
+    private static synchronized Playwright getPlaywright() {
+        if (playwright == null) {
+            BrowserEngine.await(prepareDriver());
+            playwright = timedCall("driver startup", Playwright::create);
+        }
+        return playwright;
+    }
+
+    private static <T> Callable<T> timed(String phase, Callable<T> task) {
+        return () -> {
+            var start = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                startupTimings.put(phase, (System.nanoTime() - start) / 1_000_000);
+            }
+        };
+    }
+
+    private static <T> T timedCall(String phase, Callable<T> task) {
+        try {
+            return timed(phase, task).call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SlimFixtureException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Starts a browser with a persistent profile, so the HTTP cache, service workers and compiled code cache are kept
+     * between runs. Every worker gets its own profile directory. Fixtures use the persistent browser context instead
+     * of opening a new one.
+     * Usage: | start browser with persistent profile | chromium |
+     *
+     * @param browserName name of the browser: Chromium, Firefox or Webkit
+     */
+    public static void startBrowserWithPersistentProfile(String browserName) {
+        closePersistentContext();
+        closeLaunchedBrowser();
+        var browserType = browserType(getPlaywright(), browserName);
+        var userDataDir = profileManager.acquire(browserName);
+        try {
+            persistentContext = browserType.launchPersistentContext(userDataDir, persistentContextOptions());
+        } catch (RuntimeException e) {
+            profileManager.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Sets the directory the persistent profiles are stored in. Defaults to playwright-profiles in the temp directory.
+     *
+     * @param directory directory to store the profiles in
+     */
+    public static void setProfileDirectory(String directory) {
+        profileManager.setProfilesDir(Paths.get(directory));
+    }
+
+    /**
+     * Sets a golden profile to seed new (or reset) persistent profiles with.
+     *
+     * @param directory user data directory to copy
+     */
+    public static void setGoldenProfile(String directory) {
+        profileManager.setGoldenProfile(Paths.get(directory));
+    }
+
+    /**
+     * Sets when persistent profiles are reset: never, daily or always.
+     *
+     * @param resetPolicy reset policy
+     */
+    public static void setProfileResetPolicy(String resetPolicy) {
+        profileManager.setResetPolicy(ProfileManager.ResetPolicy.valueOf(resetPolicy.toUpperCase()));
+    }
+
+    /**
+     * Sets the maximum size of a persistent profile. A larger profile is reset before it is used.
+     *
+     * @param megabytes maximum size in megabytes
+     */
+    public static void setProfileMaxSizeInMegabytes(int megabytes) {
+        profileManager.setMaxSizeInBytes(megabytes * 1024L * 1024L);
+    }
+
+    public static BrowserContext getPersistentContext() {
+        return persistentContext;
+    }
+
+    /**
+     * Combines the launch options and the new context options into options for a persistent context. A proxy set for
+     * contexts takes precedence over the proxy the browser is launched with. Storage states are not supported, the
+     * persistent profile keeps its own cookies and storage.
+     *
+     * @return options for a persistent context
+     */
+    private static BrowserType.LaunchPersistentContextOptions persistentContextOptions() {
+        var options = new BrowserType.LaunchPersistentContextOptions();
+        options.args = launchOptions.args;
+        options.artifactsDir = launchOptions.artifactsDir;
+        options.channel = launchOptions.channel;
+        options.chromiumSandbox = launchOptions.chromiumSandbox;
+        options.downloadsPath = launchOptions.downloadsPath;
+        options.env = launchOptions.env;
+        options.executablePath = launchOptions.executablePath;
+        options.firefoxUserPrefs = launchOptions.firefoxUserPrefs;
+        options.handleSIGHUP = launchOptions.handleSIGHUP;
+        options.handleSIGINT = launchOptions.handleSIGINT;
+        options.handleSIGTERM = launchOptions.handleSIGTERM;
+        options.headless = launchOptions.headless;
+        options.ignoreAllDefaultArgs = launchOptions.ignoreAllDefaultArgs;
+        options.ignoreDefaultArgs = launchOptions.ignoreDefaultArgs;
+        options.slowMo = launchOptions.slowMo;
+        options.timeout = launchOptions.timeout;
+        options.tracesDir = launchOptions.tracesDir;
+        options.proxy = newContextOptions.proxy != null ? newContextOptions.proxy : launchOptions.proxy;
+
+        options.acceptDownloads = newContextOptions.acceptDownloads;
+        options.baseURL = newContextOptions.baseURL;
+        options.bypassCSP = newContextOptions.bypassCSP;
+        options.clientCertificates = newContextOptions.clientCertificates;
+        options.colorScheme = newContextOptions.colorScheme;
+        options.contrast = newContextOptions.contrast;
+        options.deviceScaleFactor = newContextOptions.deviceScaleFactor;
+        options.extraHTTPHeaders = newContextOptions.extraHTTPHeaders;
+        options.forcedColors = newContextOptions.forcedColors;
+        options.geolocation = newContextOptions.geolocation;
+        options.hasTouch = newContextOptions.hasTouch;
+        options.httpCredentials = newContextOptions.httpCredentials;
+        options.ignoreHTTPSErrors = newContextOptions.ignoreHTTPSErrors;
+        options.isMobile = newContextOptions.isMobile;
+        options.javaScriptEnabled = newContextOptions.javaScriptEnabled;
+        options.locale = newContextOptions.locale;
+        options.offline = newContextOptions.offline;
+        options.permissions = newContextOptions.permissions;
+        options.recordHarContent = newContextOptions.recordHarContent;
+        options.recordHarMode = newContextOptions.recordHarMode;
+        options.recordHarOmitContent = newContextOptions.recordHarOmitContent;
+        options.recordHarPath = newContextOptions.recordHarPath;
+        options.recordHarUrlFilter = newContextOptions.recordHarUrlFilter;
+        options.recordVideoDir = newContextOptions.recordVideoDir;
+        options.recordVideoSize = newContextOptions.recordVideoSize;
+        options.reducedMotion = newContextOptions.reducedMotion;
+        options.screenSize = newContextOptions.screenSize;
+        options.serviceWorkers = newContextOptions.serviceWorkers;
+        options.strictSelectors = newContextOptions.strictSelectors;
+        options.timezoneId = newContextOptions.timezoneId;
+        options.userAgent = newContextOptions.userAgent;
+        options.viewportSize = newContextOptions.viewportSize;
+        return options;
+    }
+
+    private static void closePersistentContext() {
+        if (persistentContext != null) {
+            persistentContext.close();
+            persistentContext = null;
+            profileManager.release();
+        }
+    }
+
+    /**
+     * Starts a long-lived browser server on localhost, unless one is already running on the given port, and uses it
+     * for following calls to start browser. The server keeps running after the test run, so later runs can connect
+     * to it instead of starting a driver. The server launches a browser per connection with the launch options of
+     * the client. Starting a browser fails when arguments, sandbox, executable, downloads path or Firefox preference
+     * options are set, as the server does not apply them.
+     * Usage: | start browser server on port | 3000 |
+     *
+     * @param port port for the browser server to listen on
+     */
+    public static void startBrowserServerOnPort(int port) {
+        BrowserEngine.await(prepareDriver());
+        browserServer = new BrowserServer(port);
+        browserServer.start();
+    }
+
+    /**
+     * Stops the browser server on the given port, when it was started by this or an earlier test run, and launches
+     * browsers locally again.
+     * Usage: | stop browser server on port | 3000 |
+     *
+     * @param port port the browser server listens on
+     * @return true when a server was stopped
+     */
+    public static boolean stopBrowserServerOnPort(int port) {
+        browserServer = null;
+        return new BrowserServer(port).stop();
+    }
+
+    /**
+     * Uses a browser server on localhost for following calls to start browser, when it is running. When the server
+     * is not available the browser is launched locally.
+     * Usage: | use browser server on port | 3000 |
+     *
+     * @param port port the browser server listens on
+     */
+    public static void useBrowserServerOnPort(int port) {
+        browserServer = new BrowserServer(port);
+    }
+
+    /**
+     * Starts a browser for each of the given engines, each on its own Playwright instance and thread. The browsers are
+     * launched in parallel and are used by the multi engine playwright fixture.
+     * Usage: | start browsers | chromium, firefox, webkit |
+     *
+     * @param browserNames comma separated list of browser names
+     */
+    public static void startBrowsers(String browserNames) {
+        closeBrowsers();
+        List<Future<Void>> launches = new ArrayList<>();
+        for (String browserName : browserNames.split(",")) {
+            var engine = new BrowserEngine(browserName.trim());
+            engines.add(engine);
+            launches.add(engine.launch(launchOptions));
+        }
+        launches.forEach(BrowserEngine::await);
+    }
+
+    static BrowserType browserType(Playwright playwright, String browserName) {
         switch (browserName.toLowerCase()) {
             case "chromium":
-                browser = playwright.chromium().launch(launchOptions);
-                break;
+                return playwright.chromium();
             case "firefox":
-                browser = playwright.firefox().launch(launchOptions);
-                break;
+                return playwright.firefox();
             case "webkit":
-                browser = playwright.webkit().launch(launchOptions);
-                break;
+                return playwright.webkit();
             default:
                 throw new SlimFixtureException("Unsupported browser name. Use Chromium, Firefox or Webkit!");
         }
@@ -51,14 +358,91 @@ public final class PlaywrightSetup extends SlimFixture {
         return newContextOptions;
     }
 
-    public static Browser getBrowser() {
+    static BrowserType.LaunchOptions getLaunchOptions() {
+        return launchOptions;
+    }
+
+    public static synchronized Browser getBrowser() {
+        if (pendingBrowserName != null) {
+            var browserType = browserType(getPlaywright(), pendingBrowserName);
+            pendingBrowserName = null;
+            browser = timedCall("browser launch", () -> {
+                var connected = (browserServer != null) ? browserServer.connect(browserType, launchOptions) : null;
+                return (connected != null) ? connected : browserType.launch(launchOptions);
+            });
+        }
         return browser;
     }
 
+    public static List<BrowserEngine> getEngines() {
+        return Collections.unmodifiableList(engines);
+    }
+
     public void setHeadless(Boolean headless) {
         launchOptions.setHeadless(headless);
     }
 
+    /**
+     * Uses a named set of launch arguments for browsers started later.
+     * Usage: | use launch preset | ci |
+     *
+     * @param preset name of the preset, see {@link PlaywrightSetup#launchPresets()}
+     */
+    public void useLaunchPreset(String preset) {
+        LaunchPresets.apply(preset, launchOptions);
+    }
+
+    /**
+     * Adds an argument to pass to browsers started later, after the arguments of a preset.
+     *
+     * @param argument browser command line argument
+     */
+    public void addLaunchArgument(String argument) {
+        List<String> args = launchOptions.args != null ? new ArrayList<>(launchOptions.args) : new ArrayList<>();
+        args.add(argument);
+        launchOptions.setArgs(args);
+    }
+
+    /**
+     * Sets the browser channel to start, e.g. chromium (new headless mode), chrome or msedge.
+     *
+     * @param channel browser channel
+     */
+    public void setBrowserChannel(String channel) {
+        launchOptions.setChannel(channel);
+    }
+
+    /**
+     * Gets the available launch presets.
+     *
+     * @return map with the preset name as key and its channel and arguments as value
+     */
+    public Map<String, String> launchPresets() {
+        return LaunchPresets.describe();
+    }
+
+    /**
+     * Compares launch presets on this machine by launching the browser with each of them a few times and loading a
+     * static page from a local web server. Presets are ranked by launch and load time, presets that failed last.
+     * Usage: | show | benchmark launch presets | default, ci, new-headless | for browser | chromium |
+     *
+     * @param presets     comma separated preset names
+     * @param browserName name of the browser: Chromium, Firefox or Webkit
+     * @return map with the preset as key and its median launch, load and first paint time as value
+     */
+    public Map<String, String> benchmarkLaunchPresetsForBrowser(String presets, String browserName) {
+        return LaunchPresets.benchmark(getPlaywright(), browserName, launchOptions, Arrays.asList(presets.split(",")), benchmarkRuns);
+    }
+
+    /**
+     * Sets the number of launches per preset in a launch preset benchmark.
+     *
+     * @param runs number of launches. Defaults to 3.
+     */
+    public void setBenchmarkRuns(int runs) {
+        benchmarkRuns = runs;
+    }
+
     public void createHarWithName(String harName) {
         newContextOptions.setRecordHarOmitContent(true);
         newContextOptions.setRecordHarPath(Paths.get(harDir + "/" + harName + ".har"));
@@ -68,6 +452,128 @@ public final class PlaywrightSetup extends SlimFixture {
         createHarWithName("harFile");
     }
 
+    /**
+     * Records a video of every page in new contexts, in the videos folder of the files section.
+     * Usage: | record video with profile | low |
+     *
+     * @param profile resolution profile: low (640x360), medium (1280x720) or high (1920x1080)
+     */
+    public void recordVideoWithProfile(String profile) {
+        switch (profile.toLowerCase()) {
+            case "low":
+                recordVideoWithWidthAndHeight(640, 360);
+                break;
+            case "medium":
+                recordVideoWithWidthAndHeight(1280, 720);
+                break;
+            case "high":
+                recordVideoWithWidthAndHeight(1920, 1080);
+                break;
+            default:
+                throw new SlimFixtureException("Unsupported video profile. Use low, medium or high!");
+        }
+    }
+
+    /**
+     * Records a video of every page in new contexts, in the videos folder of the files section.
+     * Usage: | record video with width | 800 | and height | 600 |
+     *
+     * @param width  width of the video
+     * @param height height of the video
+     */
+    public void recordVideoWithWidthAndHeight(int width, int height) {
+        newContextOptions.setRecordVideoDir(videoDir.toPath());
+        newContextOptions.setRecordVideoSize(width, height);
+        videoRetention.setFolder(videoDir.toPath());
+    }
+
+    public void stopRecordingVideo() {
+        newContextOptions.setRecordVideoDir(null);
+        newContextOptions.setRecordVideoSize(null);
+    }
+
+    /**
+     * Sets whether videos of contexts in which no action or check failed are kept. By default they are deleted after
+     * the context is closed.
+     *
+     * @param keep true to keep all videos
+     */
+    public void setKeepVideosOfPassingPages(boolean keep) {
+        videoRetention.setKeepPassing(keep);
+    }
+
+    /**
+     * Sets the maximum size of the videos folder. When it is exceeded, the oldest videos are deleted.
+     *
+     * @param megabytes maximum size in megabytes, 0 for no maximum
+     */
+    public void setVideoQuotaInMegabytes(int megabytes) {
+        videoRetention.setQuotaInMegabytes(megabytes);
+    }
+
+    static VideoRetention getVideoRetention() {
+        return videoRetention;
+    }
+
+    /**
+     * Starts sampling the CPU and memory use of the browser processes and the JVM heap, and limits the number of
+     * contexts open at the same time based on the available memory. The limit starts at the maximum set using
+     * {@link PlaywrightSetup#setMaxConcurrentContexts(int)}, is halved when memory runs low and grows again while
+     * there is headroom. Opening a context beyond the limit fails.
+     */
+    public static void startResourceMonitor() {
+        resourceMonitor.start();
+    }
+
+    public static void stopResourceMonitor() {
+        resourceMonitor.stop();
+    }
+
+    public static void setResourceSampleIntervalMilliseconds(int milliseconds) {
+        resourceMonitor.setIntervalMillis(milliseconds);
+    }
+
+    /**
+     * Sets the memory that should remain available on the machine. When less is available, the number of contexts
+     * that may be open at the same time is halved.
+     *
+     * @param megabytes minimum available memory in megabytes. Defaults to 512.
+     */
+    public static void setMinimumFreeMemoryInMegabytes(int megabytes) {
+        resourceMonitor.setMinimumFreeMemoryInMegabytes(megabytes);
+    }
+
+    /**
+     * Sets the maximum number of contexts that may be open at the same time while the resource monitor runs.
+     *
+     * @param maxContexts maximum number of contexts. Defaults to 8.
+     */
+    public static void setMaxConcurrentContexts(int maxContexts) {
+        resourceMonitor.setMaxContexts(maxContexts);
+    }
+
+    /**
+     * Gets the last sampled resource metrics.
+     *
+     * @return map with the metric as key and its last value as value
+     */
+    public static Map<String, Number> resourceMetrics() {
+        return resourceMonitor.getLatest();
+    }
+
+    /**
+     * Gets the highest value of every resource metric since the monitor was started.
+     *
+     * @return map with the metric as key and its peak value as value
+     */
+    public static Map<String, Number> peakResourceMetrics() {
+        return resourceMonitor.getPeaks();
+    }
+
+    static ResourceMonitor getResourceMonitor() {
+        return resourceMonitor;
+    }
+
     public void setAcceptDownloads(Boolean acceptDownloads) {
         newContextOptions.setAcceptDownloads(acceptDownloads);
     }
@@ -93,11 +599,37 @@ public final class PlaywrightSetup extends SlimFixture {
     }
 
     public void closeBrowser() {
-        browser.close();
+        if (persistentContext != null) {
+            closePersistentContext();
+        } else {
+            closeLaunchedBrowser();
+        }
+    }
+
+    /**
+     * Closes the browser, if it was launched, and cancels a browser start that is still pending.
+     */
+    private static synchronized void closeLaunchedBrowser() {
+        pendingBrowserName = null;
+        if (browser != null) {
+            browser.close();
+            resourceMonitor.release(browser);
+            browser = null;
+        }
+    }
+
+    public static void closeBrowsers() {
+        engines.forEach(BrowserEngine::close);
+        engines.clear();
     }
 
     public void closePlaywright() {
-        playwright.close();
+        synchronized (PlaywrightSetup.class) {
+            if (playwright != null) {
+                playwright.close();
+                playwright = null;
+            }
+        }
     }
 }
 
@@ -0,0 +1,139 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Manages the user data directories used for persistent browser profiles. Each worker (JVM) gets its own directory,
+ * claimed using a lock file, so parallel runs never share a profile. Before use a profile is reset according to the
+ * reset policy and size limit, and a reset profile is seeded from a golden profile when one is configured.
+ */
+public class ProfileManager {
+    public enum ResetPolicy {
+        NEVER, DAILY, ALWAYS
+    }
+
+    private static final String CREATED_MARKER = ".created";
+
+    private Path profilesDir;
+    private Path goldenProfile;
+    private ResetPolicy resetPolicy = ResetPolicy.NEVER;
+    private long maxSizeInBytes;
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    public ProfileManager(Path profilesDir) {
+        this.profilesDir = profilesDir;
+    }
+
+    public void setProfilesDir(Path profilesDir) {
+        this.profilesDir = profilesDir;
+    }
+
+    public void setGoldenProfile(Path goldenProfile) {
+        this.goldenProfile = goldenProfile;
+    }
+
+    public void setResetPolicy(ResetPolicy resetPolicy) {
+        this.resetPolicy = resetPolicy;
+    }
+
+    /**
+     * Sets the maximum size of a profile. A profile that grew larger is reset before it is used.
+     *
+     * @param maxSizeInBytes maximum size in bytes, 0 for no limit
+     */
+    public void setMaxSizeInBytes(long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * Claims a profile directory for the given browser that is not in use by another worker and prepares it for use.
+     *
+     * @param browserName name of the browser the profile is for
+     * @return user data directory to launch the browser with
+     */
+    public synchronized Path acquire(String browserName) {
+        release();
+        try {
+            Files.createDirectories(profilesDir);
+            for (int slot = 0; ; slot++) {
+                var name = browserName.toLowerCase() + "-" + slot;
+                var channel = FileChannel.open(profilesDir.resolve(name + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                var slotLock = channel.tryLock();
+                if (slotLock != null) {
+                    lockChannel = channel;
+                    lock = slotLock;
+                    var profile = profilesDir.resolve(name);
+                    prepare(profile);
+                    return profile;
+                }
+                channel.close();
+            }
+        } catch (IOException e) {
+            release();
+            throw new SlimFixtureException("Exception: could not prepare browser profile: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Releases the claimed profile directory, so other workers can use it.
+     */
+    public synchronized void release() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            // lock is released when the JVM exits
+        } finally {
+            lock = null;
+            lockChannel = null;
+        }
+    }
+
+    private void prepare(Path profile) throws IOException {
+        if (needsReset(profile)) {
+            FileUtil.deleteDirectory(profile);
+        }
+        if (!Files.exists(profile)) {
+            if (goldenProfile != null) {
+                FileUtil.copyDirectory(goldenProfile, profile);
+            } else {
+                Files.createDirectories(profile);
+            }
+            Files.writeString(profile.resolve(CREATED_MARKER), Instant.now().toString());
+        }
+    }
+
+    private boolean needsReset(Path profile) throws IOException {
+        if (!Files.exists(profile)) {
+            return false;
+        }
+        if (maxSizeInBytes > 0 && FileUtil.sizeOf(profile) > maxSizeInBytes) {
+            return true;
+        }
+        switch (resetPolicy) {
+            case ALWAYS:
+                return true;
+            case DAILY:
+                var marker = profile.resolve(CREATED_MARKER);
+                return !Files.exists(marker)
+                        || Files.getLastModifiedTime(marker).compareTo(FileTime.from(Instant.now().minus(Duration.ofDays(1)))) < 0;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+import com.microsoft.playwright.Response;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Waits for the first of several conditions: an element becoming visible, the page getting an url or a response being
+ * received. All conditions are waited for in a single wait that is driven by browser events.
+ * <p>
+ * Elements are watched in the page using a mutation observer, which reports back through a binding. While a race is
+ * active it is installed as init script as well, so it keeps watching after a navigation. The binding and init script
+ * are removed, and the observer is stopped, when the race ends. Only CSS and XPath selectors are supported.
+ */
+public class RaceWait {
+    private static final String BINDING = "__fitnesseRace";
+    private static final String WATCHER = "(() => {\n" +
+            "  if (window !== window.top || window.__fitnesseRaceWatch) return;\n" +
+            "  const find = selector => {\n" +
+            "    if (selector.startsWith('xpath=') || selector.startsWith('//') || selector.startsWith('(//')) {\n" +
+            "      const xpath = selector.startsWith('xpath=') ? selector.substring(6) : selector;\n" +
+            "      return document.evaluate(xpath, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;\n" +
+            "    }\n" +
+            "    return document.querySelector(selector.startsWith('css=') ? selector.substring(4) : selector);\n" +
+            "  };\n" +
+            "  const isVisible = e => {\n" +
+            "    if (!e) return false;\n" +
+            "    const rect = e.getBoundingClientRect();\n" +
+            "    return getComputedStyle(e).visibility !== 'hidden' && rect.width > 0 && rect.height > 0;\n" +
+            "  };\n" +
+            "  window.__fitnesseRaceWatch = config => {\n" +
+            "    if (!config || window.__fitnesseRaceWatching === config.id) return;\n" +
+            "    window.__fitnesseRaceWatching = config.id;\n" +
+            "    if (window.__fitnesseRaceStop) window.__fitnesseRaceStop();\n" +
+            "    let done = false;\n" +
+            "    let scheduled = false;\n" +
+            "    const observer = new MutationObserver(() => {\n" +
+            "      if (!scheduled) { scheduled = true; requestAnimationFrame(() => { scheduled = false; check(); }); }\n" +
+            "    });\n" +
+            "    const check = () => {\n" +
+            "      if (done) return;\n" +
+            "      const index = config.selectors.findIndex(selector => isVisible(find(selector)));\n" +
+            "      if (index >= 0) {\n" +
+            "        done = true;\n" +
+            "        observer.disconnect();\n" +
+            "        window." + BINDING + "('won', config.id, index);\n" +
+            "      }\n" +
+            "    };\n" +
+            "    window.__fitnesseRaceStop = () => { done = true; observer.disconnect(); };\n" +
+            "    observer.observe(document, {childList: true, subtree: true, attributes: true, characterData: true});\n" +
+            "    check();\n" +
+            "  };\n" +
+            "  if (window." + BINDING + ") window." + BINDING + "('config').then(window.__fitnesseRaceWatch);\n" +
+            "})()";
+
+    private final List<AutoCloseable> installed = new ArrayList<>();
+    private final List<String> selectors = new ArrayList<>();
+    private final List<Pattern> urls = new ArrayList<>();
+    private final List<Pattern> responses = new ArrayList<>();
+    private Map<String, Object> activeRace;
+    private int raceId;
+    private String winner;
+
+    public void addSelector(String selector) {
+        selectors.add(selector);
+    }
+
+    public void addUrl(String urlRegex) {
+        urls.add(Pattern.compile(urlRegex));
+    }
+
+    public void addResponse(String urlRegex) {
+        responses.add(Pattern.compile(urlRegex));
+    }
+
+    /**
+     * Waits until the first of the registered conditions is met, and clears the conditions.
+     *
+     * @param context browser context of the page
+     * @param page    page to wait on
+     * @param timeout timeout in milliseconds, or null to use the context default
+     * @return the selector or url regex of the condition that was met first
+     */
+    public String waitForFirst(BrowserContext context, Page page, Double timeout) {
+        if (selectors.isEmpty() && urls.isEmpty() && responses.isEmpty()) {
+            throw new SlimFixtureException("Exception: no conditions to wait for.");
+        }
+        winner = null;
+        Consumer<Response> responseListener = response -> {
+            for (Pattern pattern : responses) {
+                if (winner == null && pattern.matcher(response.url()).find()) {
+                    winner = pattern.pattern();
+                }
+            }
+        };
+        try {
+            page.onResponse(responseListener);
+            if (!selectors.isEmpty()) {
+                watchSelectors(context, page);
+            }
+            var options = new BrowserContext.WaitForConditionOptions();
+            if (timeout != null) {
+                options.setTimeout(timeout);
+            }
+            context.waitForCondition(() -> winner != null || matchUrl(page.url()), options);
+            return winner;
+        } catch (PlaywrightException e) {
+            throw new SlimFixtureException(false, "None of the conditions was met: " + describe(), e);
+        } finally {
+            page.offResponse(responseListener);
+            if (activeRace != null) {
+                stopWatching(page);
+            }
+            activeRace = null;
+            selectors.clear();
+            urls.clear();
+            responses.clear();
+        }
+    }
+
+    private void watchSelectors(BrowserContext context, Page page) {
+        activeRace = new LinkedHashMap<>();
+        activeRace.put("id", ++raceId);
+        activeRace.put("selectors", new ArrayList<>(selectors));
+        installed.add(context.exposeBinding(BINDING, (source, args) -> {
+            if ("config".equals(args[0])) {
+                return activeRace;
+            }
+            if (activeRace != null && winner == null && ((Number) args[1]).intValue() == raceId) {
+                winner = selectors.get(((Number) args[2]).intValue());
+            }
+            return null;
+        }));
+        installed.add(context.addInitScript(WATCHER));
+        page.evaluate(WATCHER);
+        page.evaluate("config => window.__fitnesseRaceWatch(config)", activeRace);
+    }
+
+    private void stopWatching(Page page) {
+        try {
+            if (!page.isClosed()) {
+                page.evaluate("() => { window.__fitnesseRaceWatching = undefined; if (window.__fitnesseRaceStop) window.__fitnesseRaceStop(); }");
+            }
+        } catch (PlaywrightException e) {
+            // page navigated or closed, its observer is gone with the document
+        }
+        for (AutoCloseable script : installed) {
+            try {
+                script.close();
+            } catch (Exception e) {
+                // context closed, nothing left to remove
+            }
+        }
+        installed.clear();
+    }
+
+    private boolean matchUrl(String url) {
+        for (Pattern pattern : urls) {
+            if (pattern.matcher(url).find()) {
+                winner = pattern.pattern();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String describe() {
+        List<String> conditions = new ArrayList<>(selectors);
+        urls.forEach(pattern -> conditions.add("url " + pattern.pattern()));
+        responses.forEach(pattern -> conditions.add("response " + pattern.pattern()));
+        return String.join(", ", conditions);
+    }
+}
@@ -0,0 +1,240 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Samples the CPU and memory use of the browser processes (all child processes of the JVM: the Playwright driver and
+ * the browsers it launched) from /proc, together with the JVM heap and the memory available on the machine.
+ * <p>
+ * Based on the samples, the number of contexts that may be open at the same time is adapted: it starts at the maximum,
+ * is halved when the available memory or the JVM heap headroom drops below its threshold, and raised by one again
+ * otherwise. Opening a context fails when the limit is reached; it does not wait, as the thread opening it may be the
+ * one that has to close another context. A context counts as open until the fixture closes it, replaces it by a new
+ * context, or its browser is closed. On systems without /proc only the JVM heap is taken into account.
+ */
+public class ResourceMonitor {
+    private static final Path PROC = Paths.get("/proc");
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+    private static final double MAX_HEAP_USE = 0.9;
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "playwright-resource-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Long, Long> previousCpuTicks = new HashMap<>();
+    private final Map<String, Number> latest = new LinkedHashMap<>();
+    private final Map<String, Number> peaks = new LinkedHashMap<>();
+    private final Set<BrowserContext> openContexts = Collections.newSetFromMap(new IdentityHashMap<>());
+    private ScheduledFuture<?> sampling;
+    private long intervalMillis = 1_000;
+    private long minimumFreeMemoryBytes = 512L * 1024 * 1024;
+    private int maxContexts = 8;
+    private int contextLimit = maxContexts;
+
+    public synchronized void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    public synchronized void setMinimumFreeMemoryInMegabytes(long megabytes) {
+        minimumFreeMemoryBytes = megabytes * 1024 * 1024;
+    }
+
+    public synchronized void setMaxContexts(int maxContexts) {
+        this.maxContexts = maxContexts;
+        contextLimit = Math.min(contextLimit, maxContexts);
+    }
+
+    public synchronized boolean isRunning() {
+        return sampling != null;
+    }
+
+    public synchronized void start() {
+        if (sampling == null) {
+            contextLimit = maxContexts;
+            sampling = sampler.scheduleAtFixedRate(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (sampling != null) {
+            sampling.cancel(false);
+            sampling = null;
+        }
+    }
+
+    /**
+     * Opens a context, when the number of open contexts is below the limit. Without a running monitor the context is
+     * always opened.
+     *
+     * @param replaced context the new context replaces, its slot is used for the new context. Null for none.
+     * @param opener   function opening the context
+     * @return the opened context
+     * @throws SlimFixtureException when the limit is reached
+     */
+    public BrowserContext openContext(BrowserContext replaced, Supplier<BrowserContext> opener) {
+        var releasedReplaced = acquire(replaced);
+        BrowserContext context;
+        try {
+            context = opener.get();
+        } catch (RuntimeException e) {
+            restore(releasedReplaced ? replaced : null);
+            throw e;
+        }
+        synchronized (this) {
+            openContexts.add(context);
+        }
+        return context;
+    }
+
+    /**
+     * Frees the slot of a context that was closed or is no longer used.
+     *
+     * @param context the context
+     */
+    public synchronized void release(BrowserContext context) {
+        openContexts.remove(context);
+    }
+
+    /**
+     * Frees the slots of the contexts of a browser that is closed.
+     *
+     * @param browser the browser
+     */
+    public synchronized void release(Browser browser) {
+        openContexts.removeIf(context -> context.browser() == browser);
+    }
+
+    public synchronized Map<String, Number> getLatest() {
+        return new LinkedHashMap<>(latest);
+    }
+
+    public synchronized Map<String, Number> getPeaks() {
+        return new LinkedHashMap<>(peaks);
+    }
+
+    /**
+     * Takes a slot for a new context, after freeing the slot of the context it replaces.
+     *
+     * @return whether the replaced context had a slot
+     */
+    private synchronized boolean acquire(BrowserContext replaced) {
+        var releasedReplaced = replaced != null && openContexts.remove(replaced);
+        if (sampling != null && openContexts.size() >= contextLimit) {
+            restore(releasedReplaced ? replaced : null);
+            throw new SlimFixtureException(String.format(
+                    "Exception: no resources to open a new context, %d contexts open with limit %d", openContexts.size(), contextLimit));
+        }
+        return releasedReplaced;
+    }
+
+    private synchronized void restore(BrowserContext replaced) {
+        if (replaced != null) {
+            openContexts.add(replaced);
+        }
+    }
+
+    private void sample() {
+        var runtime = Runtime.getRuntime();
+        var heapUsed = runtime.totalMemory() - runtime.freeMemory();
+        var heapMax = runtime.maxMemory();
+        List<Long> pids = ProcessHandle.current().descendants().map(ProcessHandle::pid).collect(Collectors.toList());
+        long rss = 0;
+        long cpuTicks = 0;
+        Map<Long, Long> cpuTicksPerPid = new HashMap<>();
+        for (Long pid : pids) {
+            rss += residentSetSize(pid);
+            var ticks = cpuTicks(pid);
+            cpuTicksPerPid.put(pid, ticks);
+            cpuTicks += ticks - previousCpuTicks.getOrDefault(pid, ticks);
+        }
+        previousCpuTicks.clear();
+        previousCpuTicks.putAll(cpuTicksPerPid);
+        var cpuPercentage = 100.0 * cpuTicks / CLOCK_TICKS_PER_SECOND / (intervalMillis / 1000.0);
+        var available = memoryAvailable();
+
+        synchronized (this) {
+            var lowMemory = available >= 0 && available < minimumFreeMemoryBytes;
+            var lowHeap = heapUsed > MAX_HEAP_USE * heapMax;
+            if (lowMemory || lowHeap) {
+                contextLimit = Math.max(1, contextLimit / 2);
+            } else {
+                contextLimit = Math.min(maxContexts, contextLimit + 1);
+            }
+            record("browser processes", pids.size());
+            record("browser cpu %", Math.round(cpuPercentage * 10) / 10.0);
+            record("browser rss MB", rss / (1024 * 1024));
+            record("jvm heap used MB", heapUsed / (1024 * 1024));
+            record("jvm heap max MB", heapMax / (1024 * 1024));
+            record("memory available MB", available >= 0 ? available / (1024 * 1024) : -1);
+            record("open contexts", openContexts.size());
+            record("context limit", contextLimit);
+        }
+    }
+
+    private void record(String metric, Number value) {
+        latest.put(metric, value);
+        var peak = peaks.get(metric);
+        if (peak == null || value.doubleValue() > peak.doubleValue()) {
+            peaks.put(metric, value);
+        }
+    }
+
+    private static long residentSetSize(long pid) {
+        try {
+            for (String line : Files.readAllLines(PROC.resolve(pid + "/status"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // process ended or no /proc
+        }
+        return 0;
+    }
+
+    private static long cpuTicks(long pid) {
+        try {
+            var stat = new String(Files.readAllBytes(PROC.resolve(pid + "/stat")), StandardCharsets.US_ASCII);
+            // the process name may contain spaces, fields are counted from the closing parenthesis
+            var fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static long memoryAvailable() {
+        try {
+            for (String line : Files.readAllLines(PROC.resolve("meminfo"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("MemAvailable:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // no /proc
+        }
+        return -1;
+    }
+}
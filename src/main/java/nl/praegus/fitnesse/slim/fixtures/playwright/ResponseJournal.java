@@ -0,0 +1,240 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+import com.microsoft.playwright.Response;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Journal of the responses received by pages. Every response is recorded when it arrives, so a wait started after
+ * an action, using a marker taken before it, also finds a response that arrived before the wait was called. A wait
+ * consumes the response it finds, so a next wait for the same url waits for a new response.
+ * <p>
+ * The journal of a page keeps a limited number of responses, the oldest are dropped first.
+ */
+public class ResponseJournal {
+    private static final int MAX_PATTERNS = 100;
+
+    private final Map<Page, PageJournal> journals = new WeakHashMap<>();
+    private final Map<String, Pattern> patterns = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+            return size() > MAX_PATTERNS;
+        }
+    };
+    private int capacity = 500;
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Starts recording the responses of a page, unless already recording them.
+     *
+     * @param page page to record responses of
+     */
+    public void record(Page page) {
+        journal(page);
+    }
+
+    public PageJournal journal(Page page) {
+        return journals.computeIfAbsent(page, PageJournal::new);
+    }
+
+    /**
+     * Waits for a response from an url matching a regex. A matching response already in the journal, that was not
+     * consumed by an earlier wait, is used without waiting.
+     *
+     * @param context  browser context of the page
+     * @param page     page the response is for
+     * @param urlRegex regex the url should match
+     * @param since    only consider responses recorded after this sequence number
+     * @param timeout  timeout in milliseconds, or null to use the context default
+     * @return the response that was found
+     */
+    public Entry waitFor(BrowserContext context, Page page, String urlRegex, long since, Double timeout) {
+        var journal = journal(page);
+        var pattern = pattern(urlRegex);
+        var found = journal.find(pattern, since, true);
+        if (found == null) {
+            var options = new BrowserContext.WaitForConditionOptions();
+            if (timeout != null) {
+                options.setTimeout(timeout);
+            }
+            try {
+                context.waitForCondition(() -> journal.hasUnconsumed(pattern, since), options);
+            } catch (PlaywrightException e) {
+                throw new SlimFixtureException(false, "No response received from url matching: " + urlRegex, e);
+            }
+            found = journal.find(pattern, since, true);
+        }
+        found.consumed = true;
+        return found;
+    }
+
+    public synchronized Pattern pattern(String regex) {
+        return patterns.computeIfAbsent(regex, Pattern::compile);
+    }
+
+    /**
+     * Responses recorded for a single page.
+     */
+    public class PageJournal {
+        private final Deque<Entry> entries = new ArrayDeque<>();
+        private long sequence;
+
+        private PageJournal(Page page) {
+            page.onResponse(this::add);
+        }
+
+        private void add(Response response) {
+            var timing = response.request().timing();
+            var contentLength = response.headers().get("content-length");
+            entries.addLast(new Entry(++sequence,
+                    response.request().method(),
+                    response.url(),
+                    response.status(),
+                    timing != null ? timing.responseStart : -1,
+                    contentLength != null ? parseLong(contentLength) : -1));
+            if (entries.size() > Math.max(1, capacity)) {
+                entries.removeFirst();
+            }
+        }
+
+        /**
+         * Returns the sequence number of the last recorded response, to only look at responses received later.
+         *
+         * @return sequence number of the last response
+         */
+        public long marker() {
+            return sequence;
+        }
+
+        /**
+         * Finds a response from an url matching a pattern.
+         *
+         * @param pattern        pattern the url should match
+         * @param since          only consider responses recorded after this sequence number
+         * @param unconsumedOnly whether responses consumed by a wait are skipped
+         * @return the oldest matching response, or null when there is none
+         */
+        public Entry find(Pattern pattern, long since, boolean unconsumedOnly) {
+            for (Entry entry : entries) {
+                if (entry.sequence > since && !(unconsumedOnly && entry.consumed) && pattern.matcher(entry.url).find()) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Finds the most recent response from an url matching a pattern, consumed or not.
+         *
+         * @param pattern pattern the url should match
+         * @return the newest matching response, or null when there is none
+         */
+        public Entry findLast(Pattern pattern) {
+            Iterator<Entry> newestFirst = entries.descendingIterator();
+            while (newestFirst.hasNext()) {
+                var entry = newestFirst.next();
+                if (pattern.matcher(entry.url).find()) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Marks the oldest unconsumed response from an url as consumed, for a response a wait got from Playwright.
+         *
+         * @param url   url of the response
+         * @param since only consider responses recorded after this sequence number
+         */
+        public void consume(String url, long since) {
+            for (Entry entry : entries) {
+                if (entry.sequence > since && !entry.consumed && entry.url.equals(url)) {
+                    entry.consumed = true;
+                    return;
+                }
+            }
+        }
+
+        public int count(Pattern pattern) {
+            return (int) entries.stream().filter(entry -> pattern.matcher(entry.url).find()).count();
+        }
+
+        private boolean hasUnconsumed(Pattern pattern, long since) {
+            return find(pattern, since, true) != null;
+        }
+    }
+
+    /**
+     * A recorded response.
+     */
+    public static class Entry {
+        private final long sequence;
+        private final String method;
+        private final String url;
+        private final int status;
+        private final double responseTime;
+        private final long size;
+        private boolean consumed;
+
+        private Entry(long sequence, String method, String url, int status, double responseTime, long size) {
+            this.sequence = sequence;
+            this.method = method;
+            this.url = url;
+            this.status = status;
+            this.responseTime = responseTime;
+            this.size = size;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return milliseconds between the start of the request and the start of the response, or -1 when unknown
+         */
+        public double getResponseTime() {
+            return responseTime;
+        }
+
+        /**
+         * @return size of the body according to the content-length header, or -1 when unknown
+         */
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + url + " " + status;
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.Locator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the cost of the selectors used in a run: the time to resolve them, the number of elements they match and
+ * the size of the DOM they are resolved in. Measurements are aggregated over all fixtures in the JVM, so a report
+ * covers a whole suite. For the element a selector matches, cheaper selectors (test id, id, role, CSS) are suggested.
+ * <p>
+ * Every measurement is a single extra call to the browser, so the analyzer is meant as a diagnostic mode. Selectors
+ * are measured after the action using them completed, so the measurement does not count towards the action's time
+ * and finds the elements the action waited for. An action that navigates away leaves its selectors to be measured in
+ * the new page.
+ */
+public class SelectorCostAnalyzer {
+    private static final String MEASURE = "(elements, withSuggestions) => {\n" +
+            "  const result = {count: elements.length, domSize: document.getElementsByTagName('*').length, suggestions: []};\n" +
+            "  const e = elements[0];\n" +
+            "  if (!withSuggestions || !e) return result;\n" +
+            "  const s = result.suggestions;\n" +
+            "  const tag = e.tagName.toLowerCase();\n" +
+            "  const unique = css => { try { return document.querySelectorAll(css).length === 1; } catch (x) { return false; } };\n" +
+            "  for (const attribute of ['data-testid', 'data-test-id', 'data-test']) {\n" +
+            "    const value = e.getAttribute(attribute);\n" +
+            "    if (value) s.push(attribute + '=' + value);\n" +
+            "  }\n" +
+            "  if (e.id && unique('#' + CSS.escape(e.id))) s.push('#' + CSS.escape(e.id));\n" +
+            "  const implicitRoles = {button: 'button', select: 'combobox', textarea: 'textbox', img: 'img',\n" +
+            "    h1: 'heading', h2: 'heading', h3: 'heading', h4: 'heading', h5: 'heading', h6: 'heading'};\n" +
+            "  const inputRoles = {checkbox: 'checkbox', radio: 'radio', submit: 'button', button: 'button', reset: 'button',\n" +
+            "    text: 'textbox', email: 'textbox', password: null, search: 'searchbox', tel: 'textbox', url: 'textbox', number: 'spinbutton'};\n" +
+            "  let role = e.getAttribute('role') || implicitRoles[tag] || (tag === 'a' && e.hasAttribute('href') ? 'link' : null);\n" +
+            "  if (tag === 'input') role = inputRoles[(e.getAttribute('type') || 'text').toLowerCase()] || null;\n" +
+            "  const label = e.labels && e.labels.length ? e.labels[0].innerText : null;\n" +
+            "  const name = (e.getAttribute('aria-label') || label || e.getAttribute('alt') || e.innerText || e.value || '').trim();\n" +
+            "  if (role && name && name.length <= 50 && !name.includes('\\n')) s.push('role=' + role + '[name=\"' + name.replace(/\"/g, '\\\\\"') + '\"]');\n" +
+            "  const nameAttribute = e.getAttribute('name');\n" +
+            "  if (nameAttribute && unique(tag + '[name=\"' + nameAttribute + '\"]')) s.push(tag + '[name=\"' + nameAttribute + '\"]');\n" +
+            "  const classes = Array.from(e.classList).map(c => '.' + CSS.escape(c)).join('');\n" +
+            "  if (classes && unique(tag + classes)) s.push(tag + classes);\n" +
+            "  return result;\n" +
+            "}";
+    private static final Map<String, SelectorCost> costs = new HashMap<>();
+
+    private final Map<String, Locator> used = new LinkedHashMap<>();
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        used.clear();
+    }
+
+    /**
+     * Records a selector used by the current action, to measure it when the action completed. Does nothing when the
+     * analyzer is disabled.
+     *
+     * @param selector selector as used in the wiki page
+     * @param locator  locator for the selector
+     */
+    public void use(String selector, Locator locator) {
+        if (enabled) {
+            used.put(selector, locator);
+        }
+    }
+
+    /**
+     * Measures the selectors used since the last measurement. A selector that can't be measured, e.g. because its
+     * page was closed, is skipped.
+     */
+    public void measureUsed() {
+        var toMeasure = new ArrayList<>(used.entrySet());
+        used.clear();
+        for (Map.Entry<String, Locator> selector : toMeasure) {
+            try {
+                measure(selector.getKey(), selector.getValue());
+            } catch (RuntimeException e) {
+                // a selector that can't be measured has no cost to report
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void measure(String selector, Locator locator) {
+        boolean withSuggestions;
+        synchronized (costs) {
+            withSuggestions = !costs.containsKey(selector) || costs.get(selector).suggestions.isEmpty();
+        }
+        var start = System.nanoTime();
+        var result = (Map<String, Object>) locator.evaluateAll(MEASURE, withSuggestions);
+        var duration = (System.nanoTime() - start) / 1_000_000.0;
+        synchronized (costs) {
+            var cost = costs.computeIfAbsent(selector, SelectorCost::new);
+            cost.uses++;
+            cost.totalTime += duration;
+            cost.maxTime = Math.max(cost.maxTime, duration);
+            cost.maxMatches = Math.max(cost.maxMatches, ((Number) result.get("count")).intValue());
+            cost.totalDomSize += ((Number) result.get("domSize")).longValue();
+            var suggestions = (List<String>) result.get("suggestions");
+            if (cost.suggestions.isEmpty() && suggestions != null) {
+                suggestions.stream().filter(s -> !s.equals(selector)).forEach(cost.suggestions::add);
+            }
+        }
+    }
+
+    /**
+     * Gets the most expensive selectors, ranked by total resolution time.
+     *
+     * @param count maximum number of selectors
+     * @return map with the selector as key and a summary of its cost as value
+     */
+    public static Map<String, String> mostExpensive(int count) {
+        return ranked().stream().limit(count)
+                .collect(Collectors.toMap(cost -> cost.selector, SelectorCost::toString, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Writes a tab separated report of all measured selectors, ranked by total resolution time.
+     *
+     * @param file file to write the report to
+     * @throws IOException when the report could not be written
+     */
+    public static void writeReport(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("selector\tuses\ttotal ms\tavg ms\tmax ms\tmax matches\tavg dom size\tsuggestions");
+            writer.newLine();
+            for (SelectorCost cost : ranked()) {
+                writer.write(String.join("\t",
+                        cost.selector,
+                        String.valueOf(cost.uses),
+                        String.format(Locale.ROOT, "%.1f", cost.totalTime),
+                        String.format(Locale.ROOT, "%.1f", cost.averageTime()),
+                        String.format(Locale.ROOT, "%.1f", cost.maxTime),
+                        String.valueOf(cost.maxMatches),
+                        String.valueOf(cost.totalDomSize / cost.uses),
+                        String.join(" | ", cost.suggestions)));
+                writer.newLine();
+            }
+        }
+    }
+
+    public static void reset() {
+        synchronized (costs) {
+            costs.clear();
+        }
+    }
+
+    private static List<SelectorCost> ranked() {
+        synchronized (costs) {
+            List<SelectorCost> ranked = new ArrayList<>();
+            costs.values().forEach(cost -> ranked.add(cost.copy()));
+            ranked.sort(Comparator.comparingDouble((SelectorCost cost) -> cost.totalTime).reversed());
+            return ranked;
+        }
+    }
+
+    private static class SelectorCost {
+        private final String selector;
+        private final List<String> suggestions = new ArrayList<>();
+        private int uses;
+        private double totalTime;
+        private double maxTime;
+        private int maxMatches;
+        private long totalDomSize;
+
+        private SelectorCost(String selector) {
+            this.selector = selector;
+        }
+
+        private double averageTime() {
+            return uses == 0 ? 0 : totalTime / uses;
+        }
+
+        private SelectorCost copy() {
+            var copy = new SelectorCost(selector);
+            copy.suggestions.addAll(suggestions);
+            copy.uses = uses;
+            copy.totalTime = totalTime;
+            copy.maxTime = maxTime;
+            copy.maxMatches = maxMatches;
+            copy.totalDomSize = totalDomSize;
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            var summary = String.format(Locale.ROOT, "%d uses, avg %.1f ms, max %.1f ms, max %d matches, avg dom size %d",
+                    uses, averageTime(), maxTime, maxMatches, uses == 0 ? 0 : totalDomSize / uses);
+            return suggestions.isEmpty() ? summary : summary + ", try: " + String.join(" | ", suggestions);
+        }
+    }
+}
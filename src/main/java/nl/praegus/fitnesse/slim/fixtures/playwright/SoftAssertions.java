@@ -0,0 +1,133 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.Frame;
+import com.microsoft.playwright.TimeoutError;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A block of expectations that are evaluated together in a single polling loop in the page. Polling stops as soon as
+ * all expectations pass or the shared timeout expires, after which the result of every expectation is known.
+ * <p>
+ * The expectations are evaluated in the page itself, so only CSS selectors and XPath selectors (starting with
+ * xpath= or //) are supported.
+ */
+public class SoftAssertions {
+    private static final String CHECK_EXPECTATIONS = "({expectations, waitForAll}) => {\n" +
+            "  const find = selector => {\n" +
+            "    if (selector.startsWith('xpath=') || selector.startsWith('//') || selector.startsWith('(//')) {\n" +
+            "      const xpath = selector.startsWith('xpath=') ? selector.substring(6) : selector;\n" +
+            "      return document.evaluate(xpath, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;\n" +
+            "    }\n" +
+            "    return document.querySelector(selector.startsWith('css=') ? selector.substring(4) : selector);\n" +
+            "  };\n" +
+            "  const normalize = text => (text || '').replace(/[\\u00a0\\s]+/g, ' ').trim();\n" +
+            "  const isVisible = e => {\n" +
+            "    if (!e) return false;\n" +
+            "    const rect = e.getBoundingClientRect();\n" +
+            "    return getComputedStyle(e).visibility !== 'hidden' && rect.width > 0 && rect.height > 0;\n" +
+            "  };\n" +
+            "  const checks = {\n" +
+            "    visible: e => isVisible(e),\n" +
+            "    hidden: e => !isVisible(e),\n" +
+            "    enabled: e => !!e && !e.disabled,\n" +
+            "    checked: e => !!e && !!e.checked,\n" +
+            "    containsText: (e, expected) => !!e && normalize(e.textContent).includes(normalize(expected)),\n" +
+            "    hasValue: (e, expected) => !!e && e.value === expected\n" +
+            "  };\n" +
+            "  const results = expectations.map(x => checks[x.type](find(x.selector), x.expected));\n" +
+            "  return (!waitForAll || results.every(r => r)) ? results : false;\n" +
+            "}";
+
+    private static final Pattern SELECTOR_ENGINE = Pattern.compile("^[a-zA-Z_][\\w-]*=");
+    private static final Pattern PLAYWRIGHT_PSEUDO_CLASS = Pattern.compile(
+            ":(has-text|text|text-is|text-matches|visible|nth-match|left-of|right-of|above|below|near)\\b");
+
+    private final List<Map<String, Object>> expectations = new ArrayList<>();
+    private final Map<String, Boolean> results = new LinkedHashMap<>();
+
+    /**
+     * Registers an expectation.
+     *
+     * @param type     type of check: visible, hidden, enabled, checked, containsText or hasValue
+     * @param selector CSS or XPath selector of the element to check
+     * @param expected expected text or value, or null when not applicable
+     * @throws SlimFixtureException when the selector is not a CSS or XPath selector
+     */
+    public void expect(String type, String selector, String expected) {
+        validate(selector);
+        Map<String, Object> expectation = new LinkedHashMap<>();
+        expectation.put("type", type);
+        expectation.put("selector", selector);
+        expectation.put("expected", expected);
+        expectations.add(expectation);
+    }
+
+    /**
+     * Evaluates all registered expectations until they all pass or the timeout expires, and clears them.
+     *
+     * @param frame frame to evaluate the expectations in
+     * @return result per expectation, keyed by a description of the expectation
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Boolean> verify(Frame frame) {
+        Map<String, Object> arg = new LinkedHashMap<>();
+        arg.put("expectations", expectations);
+        arg.put("waitForAll", true);
+        results.clear();
+        try {
+            List<Boolean> outcome;
+            try {
+                var handle = frame.waitForFunction(CHECK_EXPECTATIONS, arg);
+                try {
+                    outcome = (List<Boolean>) handle.jsonValue();
+                } finally {
+                    handle.dispose();
+                }
+            } catch (TimeoutError e) {
+                arg.put("waitForAll", false);
+                outcome = (List<Boolean>) frame.evaluate(CHECK_EXPECTATIONS, arg);
+            }
+            for (int i = 0; i < expectations.size(); i++) {
+                results.put(describe(expectations.get(i)), outcome.get(i));
+            }
+        } finally {
+            expectations.clear();
+        }
+        return results;
+    }
+
+    public Map<String, Boolean> getResults() {
+        return results;
+    }
+
+    /**
+     * Rejects selectors the page cannot evaluate itself: Playwright selector engines (text=, role=, ...), chained
+     * selectors (&gt;&gt;), text selectors in quotes and Playwright's own pseudo-classes such as :has-text().
+     */
+    private static void validate(String selector) {
+        var trimmed = selector.trim();
+        var xpath = trimmed.startsWith("xpath=") || trimmed.startsWith("//") || trimmed.startsWith("(//");
+        if (xpath) {
+            return;
+        }
+        var css = trimmed.startsWith("css=") ? trimmed.substring(4) : trimmed;
+        if (css.isEmpty()
+                || (!trimmed.startsWith("css=") && SELECTOR_ENGINE.matcher(trimmed).find())
+                || css.contains(">>")
+                || css.startsWith("\"") || css.startsWith("'")
+                || PLAYWRIGHT_PSEUDO_CLASS.matcher(css).find()) {
+            throw new SlimFixtureException("Unsupported selector for soft assertions: " + selector + ". Use a CSS or XPath selector!");
+        }
+    }
+
+    private static String describe(Map<String, Object> expectation) {
+        var description = expectation.get("selector") + " " + expectation.get("type");
+        return expectation.get("expected") != null ? description + " " + expectation.get("expected") : description;
+    }
+}
@@ -0,0 +1,169 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Tree of an indented snapshot: an ARIA snapshot or a normalised DOM snapshot, one node per line and children
+ * indented below their parent. Every node has a hash of its label and the hashes of its children, so two snapshots
+ * are compared by only descending into subtrees whose hashes differ.
+ */
+public class StructuralSnapshot {
+    /**
+     * Normalised DOM of an element: elements with their stable attributes and whitespace normalised texts. Scripts,
+     * styles and class names are left out.
+     */
+    public static final String DOM_SNAPSHOT = "root => {\n" +
+            "  const lines = [];\n" +
+            "  const keep = ['id', 'name', 'type', 'role', 'href', 'src', 'alt', 'title', 'placeholder', 'value', 'disabled', 'checked', 'for'];\n" +
+            "  const walk = (node, depth) => {\n" +
+            "    if (node.nodeType === Node.TEXT_NODE) {\n" +
+            "      const text = node.textContent.replace(/[\\u00a0\\s]+/g, ' ').trim();\n" +
+            "      if (text) lines.push('  '.repeat(depth) + JSON.stringify(text));\n" +
+            "      return;\n" +
+            "    }\n" +
+            "    if (node.nodeType !== Node.ELEMENT_NODE) return;\n" +
+            "    const tag = node.tagName.toLowerCase();\n" +
+            "    if (tag === 'script' || tag === 'style' || tag === 'noscript' || tag === 'template') return;\n" +
+            "    const attributes = Array.from(node.attributes)\n" +
+            "      .filter(a => keep.includes(a.name) || a.name.startsWith('aria-') || a.name.startsWith('data-test'))\n" +
+            "      .map(a => a.name + '=' + JSON.stringify(a.value)).sort();\n" +
+            "    lines.push('  '.repeat(depth) + tag + (attributes.length ? ' [' + attributes.join(' ') + ']' : ''));\n" +
+            "    node.childNodes.forEach(child => walk(child, depth + 1));\n" +
+            "    if (node.shadowRoot) node.shadowRoot.childNodes.forEach(child => walk(child, depth + 1));\n" +
+            "  };\n" +
+            "  walk(root, 0);\n" +
+            "  return lines.join('\\n');\n" +
+            "}";
+
+    private final Node root;
+
+    private StructuralSnapshot(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Parses an indented snapshot.
+     *
+     * @param text snapshot, one node per line
+     * @return the snapshot tree
+     */
+    public static StructuralSnapshot parse(String text) {
+        var root = new Node("", -1);
+        Deque<Node> parents = new ArrayDeque<>();
+        parents.push(root);
+        for (String line : text.split("\\r?\\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            var indent = line.length() - line.stripLeading().length();
+            while (parents.peek().indent >= indent) {
+                parents.pop();
+            }
+            var node = new Node(line.strip(), indent);
+            parents.peek().children.add(node);
+            parents.push(node);
+        }
+        root.computeHash();
+        return new StructuralSnapshot(root);
+    }
+
+    public String getHash() {
+        return root.hash;
+    }
+
+    /**
+     * Compares this snapshot to a baseline. Unchanged subtrees are skipped using their hashes.
+     *
+     * @param baseline snapshot to compare to
+     * @return description of every changed, added or removed subtree, empty when the snapshots are equal
+     */
+    public List<String> diff(StructuralSnapshot baseline) {
+        List<String> differences = new ArrayList<>();
+        diffChildren(baseline.root, root, "", differences);
+        return differences;
+    }
+
+    private static void diffChildren(Node expected, Node actual, String path, List<String> differences) {
+        if (expected.hash.equals(actual.hash)) {
+            return;
+        }
+        var expectedChildren = expected.children;
+        var actualChildren = actual.children;
+        // longest common subsequence of unchanged subtrees
+        var lengths = new int[expectedChildren.size() + 1][actualChildren.size() + 1];
+        for (int i = expectedChildren.size() - 1; i >= 0; i--) {
+            for (int j = actualChildren.size() - 1; j >= 0; j--) {
+                lengths[i][j] = expectedChildren.get(i).hash.equals(actualChildren.get(j).hash)
+                        ? lengths[i + 1][j + 1] + 1
+                        : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        while (i < expectedChildren.size() || j < actualChildren.size()) {
+            if (i < expectedChildren.size() && j < actualChildren.size()
+                    && expectedChildren.get(i).hash.equals(actualChildren.get(j).hash)) {
+                i++;
+                j++;
+            } else if (i < expectedChildren.size() && j < actualChildren.size()
+                    && expectedChildren.get(i).label.equals(actualChildren.get(j).label)
+                    && lengths[i + 1][j + 1] == lengths[i][j]) {
+                var child = actualChildren.get(j);
+                diffChildren(expectedChildren.get(i), child, childPath(path, child, j), differences);
+                i++;
+                j++;
+            } else if (j < actualChildren.size()
+                    && (i == expectedChildren.size() || lengths[i][j + 1] >= lengths[i + 1][j])) {
+                var child = actualChildren.get(j);
+                differences.add("added " + childPath(path, child, j));
+                j++;
+            } else {
+                var child = expectedChildren.get(i);
+                differences.add("removed " + childPath(path, child, i));
+                i++;
+            }
+        }
+    }
+
+    private static String childPath(String path, Node child, int index) {
+        return (path.isEmpty() ? "" : path + " > ") + child.label + (child.children.isEmpty() ? "" : " #" + (index + 1));
+    }
+
+    private static class Node {
+        private final String label;
+        private final int indent;
+        private final List<Node> children = new ArrayList<>();
+        private String hash;
+
+        private Node(String label, int indent) {
+            this.label = label;
+            this.indent = indent;
+        }
+
+        private void computeHash() {
+            try {
+                var digest = MessageDigest.getInstance("SHA-256");
+                digest.update(label.getBytes(StandardCharsets.UTF_8));
+                for (Node child : children) {
+                    child.computeHash();
+                    digest.update((byte) 0);
+                    digest.update(child.hash.getBytes(StandardCharsets.US_ASCII));
+                }
+                var bytes = digest.digest();
+                var hex = new StringBuilder();
+                for (int k = 0; k < 8; k++) {
+                    hex.append(String.format("%02x", bytes[k]));
+                }
+                hash = hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
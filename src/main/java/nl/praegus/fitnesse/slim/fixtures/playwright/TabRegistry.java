@@ -0,0 +1,157 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+import nl.hsac.fitnesse.fixture.slim.SlimFixtureException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of the tabs (pages) of a browser context. The registry is kept up to date by the page and close events of
+ * the context, so pages opened by popups are known without polling the context. Tabs can be given a name to be able
+ * to switch back to them regardless of their position.
+ */
+public class TabRegistry {
+    private final List<Page> pages = new ArrayList<>();
+    private final Map<Page, Integer> indexes = new HashMap<>();
+    private final Map<String, Page> namedPages = new HashMap<>();
+    private final Consumer<Page> pageListener = this::register;
+    private BrowserContext browserContext;
+
+    /**
+     * Starts tracking the pages of a browser context. Pages of a previously tracked context are forgotten.
+     *
+     * @param context browser context to track
+     */
+    public void attach(BrowserContext context) {
+        if (browserContext != null) {
+            browserContext.offPage(pageListener);
+        }
+        pages.clear();
+        indexes.clear();
+        namedPages.clear();
+        browserContext = context;
+        context.pages().forEach(this::register);
+        context.onPage(pageListener);
+    }
+
+    public List<Page> pages() {
+        return Collections.unmodifiableList(pages);
+    }
+
+    public Page get(int index) {
+        if (index < 0 || index >= pages.size()) {
+            throw new SlimFixtureException("Exception: no tab with index " + index);
+        }
+        return pages.get(index);
+    }
+
+    public int indexOf(Page page) {
+        return indexes.getOrDefault(page, -1);
+    }
+
+    public int size() {
+        return pages.size();
+    }
+
+    /**
+     * Gives a page a name, so it can be retrieved by that name later.
+     *
+     * @param name name of the tab
+     * @param page page to name
+     */
+    public void name(String name, Page page) {
+        namedPages.put(name, page);
+    }
+
+    public Page named(String name) {
+        var page = namedPages.get(name);
+        if (page == null) {
+            throw new SlimFixtureException("Exception: no tab named " + name);
+        }
+        return page;
+    }
+
+    public Page withUrlMatching(String urlRegex) {
+        return find(urlMatches(urlRegex), "url matching " + urlRegex);
+    }
+
+    public Page withTitle(String title) {
+        return find(page -> title.equals(page.title()), "title " + title);
+    }
+
+    /**
+     * Waits for a tab with an url matching the given regex. The wait is driven by browser events, no polling is done.
+     *
+     * @param urlRegex regular expression the url of the tab should match
+     * @param timeout  timeout in milliseconds, or null to use the context default
+     * @return matching page
+     */
+    public Page waitForUrlMatching(String urlRegex, Double timeout) {
+        return waitFor(urlMatches(urlRegex), "url matching " + urlRegex, timeout);
+    }
+
+    private Page waitFor(Predicate<Page> predicate, String description, Double timeout) {
+        var options = new BrowserContext.WaitForConditionOptions();
+        if (timeout != null) {
+            options.setTimeout(timeout);
+        }
+        try {
+            browserContext.waitForCondition(() -> findOrNull(predicate) != null, options);
+        } catch (PlaywrightException e) {
+            throw new SlimFixtureException("Exception: no tab with " + description + " appeared", e);
+        }
+        return findOrNull(predicate);
+    }
+
+    private Page find(Predicate<Page> predicate, String description) {
+        var page = findOrNull(predicate);
+        if (page == null) {
+            throw new SlimFixtureException("Exception: no tab with " + description);
+        }
+        return page;
+    }
+
+    private Page findOrNull(Predicate<Page> predicate) {
+        for (Page page : pages) {
+            if (predicate.test(page)) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    private Predicate<Page> urlMatches(String urlRegex) {
+        var pattern = Pattern.compile(urlRegex);
+        return page -> pattern.matcher(page.url()).find();
+    }
+
+    private void register(Page page) {
+        if (indexes.containsKey(page)) {
+            return;
+        }
+        indexes.put(page, pages.size());
+        pages.add(page);
+        page.onClose(this::unregister);
+    }
+
+    private void unregister(Page page) {
+        var index = indexes.remove(page);
+        if (index == null) {
+            return;
+        }
+        pages.remove((int) index);
+        for (int i = index; i < pages.size(); i++) {
+            indexes.put(pages.get(i), i);
+        }
+        namedPages.values().removeIf(named -> named == page);
+    }
+}
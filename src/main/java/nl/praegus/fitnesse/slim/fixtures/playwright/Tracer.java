@@ -0,0 +1,316 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.PlaywrightException;
+import com.microsoft.playwright.Request;
+import com.microsoft.playwright.Route;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Creates OpenTelemetry spans for fixture actions and exports them using {@link OtlpFileExporter}. All actions on a
+ * test page are children of a span for that page, which is started explicitly or on the first action. Requests from
+ * the browser get a traceparent header, so spans of the backend join the trace of the action that caused them. By
+ * default only requests to the origin of the first page opened in a context get the header, so third parties don't
+ * receive it.
+ * <p>
+ * The selector of an action is recorded from its parameter named selector, or otherwise from the locator the action
+ * used. The arguments of actions may contain passwords or other secrets, so they are only recorded when enabled.
+ */
+public class Tracer {
+    private static final int KIND_INTERNAL = 1;
+    private static final int STATUS_OK = 1;
+    private static final int STATUS_ERROR = 2;
+    private static final String DEFAULT_PAGE_SPAN = "fitnesse test page";
+    private static Span pageSpan;
+    private static boolean shutdownHookAdded;
+
+    private final Path file;
+    private static final Pattern ALL_URLS = Pattern.compile(".*");
+
+    private final Map<BrowserContext, AutoCloseable> routes = new WeakHashMap<>();
+    private final Map<BrowserContext, AtomicReference<String>> startOrigins = new WeakHashMap<>();
+    private OtlpFileExporter exporter;
+    private Pattern propagationPattern;
+    private boolean recordArguments;
+    private Span actionSpan;
+    private boolean selectorRecorded;
+
+    public Tracer(Path file) {
+        this.file = file;
+    }
+
+    public boolean isEnabled() {
+        return exporter != null;
+    }
+
+    /**
+     * Enables or disables span export. Disabling also stops adding the traceparent header to requests.
+     *
+     * @param enabled true to export spans
+     */
+    public void setEnabled(boolean enabled) {
+        exporter = enabled ? OtlpFileExporter.forFile(file) : null;
+        if (enabled) {
+            addShutdownHook(exporter);
+        } else {
+            routes.values().forEach(Tracer::unroute);
+            routes.clear();
+        }
+    }
+
+    public void setRecordArguments(boolean recordArguments) {
+        this.recordArguments = recordArguments;
+    }
+
+    /**
+     * Adds the traceparent header to requests to urls matching a regex, instead of to requests to the origin of the
+     * first page. Applies to contexts opened after this call.
+     *
+     * @param urlRegex regex urls should match
+     */
+    public void setPropagationUrlPattern(String urlRegex) {
+        propagationPattern = Pattern.compile(urlRegex);
+    }
+
+    /**
+     * Starts the span of a test page, ending the span of the previous page.
+     *
+     * @param name name of the test page
+     */
+    public void startPage(String name) {
+        synchronized (Tracer.class) {
+            endPage();
+            pageSpan = new Span(name, randomHex(16), null, exporter);
+        }
+    }
+
+    /**
+     * Ends the span of the current test page.
+     */
+    public static synchronized void endPage() {
+        if (pageSpan != null) {
+            pageSpan.end(null);
+            pageSpan = null;
+        }
+    }
+
+    /**
+     * Starts the span of a fixture action.
+     *
+     * @param method    method of the action
+     * @param arguments arguments of the action
+     */
+    public void startAction(Method method, Object[] arguments) {
+        Span parent;
+        synchronized (Tracer.class) {
+            if (pageSpan == null) {
+                pageSpan = new Span(DEFAULT_PAGE_SPAN, randomHex(16), null, exporter);
+            }
+            parent = pageSpan;
+        }
+        actionSpan = new Span(method.getName(), parent.traceId, parent.spanId, exporter);
+        selectorRecorded = false;
+        if (arguments == null) {
+            return;
+        }
+        var parameters = method.getParameters();
+        for (int i = 0; i < parameters.length && i < arguments.length; i++) {
+            if (isSelector(parameters[i]) && arguments[i] instanceof String) {
+                useSelector((String) arguments[i]);
+            }
+        }
+        if (recordArguments && arguments.length > 0) {
+            List<String> values = new ArrayList<>();
+            for (Object argument : arguments) {
+                values.add(String.valueOf(argument));
+            }
+            actionSpan.attributes.add(OtlpFileExporter.attribute("fitnesse.arguments", String.join(", ", values)));
+        }
+    }
+
+    /**
+     * Records the selector used by the current action, unless one was recorded already.
+     *
+     * @param selector selector of the action
+     */
+    public void useSelector(String selector) {
+        if (actionSpan != null && !selectorRecorded) {
+            actionSpan.attributes.add(OtlpFileExporter.attribute("playwright.selector", selector));
+            selectorRecorded = true;
+        }
+    }
+
+    private static boolean isSelector(Parameter parameter) {
+        // without the parameter names in the class files the selector is recorded by useSelector
+        return parameter.isNamePresent() && "selector".equals(parameter.getName());
+    }
+
+    /**
+     * Ends the span of the current fixture action.
+     *
+     * @param pageUrl url of the page the action was performed on, or null when unknown
+     * @param error   error the action failed with, or null when it succeeded
+     */
+    public void endAction(String pageUrl, Throwable error) {
+        if (actionSpan == null) {
+            return;
+        }
+        if (pageUrl != null) {
+            actionSpan.attributes.add(OtlpFileExporter.attribute("url.full", pageUrl));
+        }
+        actionSpan.end(error);
+        actionSpan = null;
+    }
+
+    /**
+     * Adds the traceparent header of the current span to requests of a context. When the header was already added to
+     * the requests of the context, its route is added again, so it runs before the routes added since, like fault
+     * injection routes fetching the response themselves.
+     *
+     * @param context context to add the header to requests of
+     */
+    public void propagateTo(BrowserContext context) {
+        if (!isEnabled() || context == null) {
+            return;
+        }
+        var previous = routes.remove(context);
+        if (previous != null) {
+            unroute(previous);
+        }
+        var pattern = propagationPattern;
+        var startOrigin = startOrigins.computeIfAbsent(context, c -> new AtomicReference<>());
+        routes.put(context, context.route(pattern != null ? pattern : ALL_URLS, route -> {
+            if (pattern == null && !isStartOrigin(route.request(), startOrigin)) {
+                route.fallback();
+            } else {
+                addTraceparent(route);
+            }
+        }));
+    }
+
+    /**
+     * Checks if a request is to the origin of the first page opened in its context.
+     */
+    private static boolean isStartOrigin(Request request, AtomicReference<String> startOrigin) {
+        var origin = origin(request.url());
+        if (startOrigin.get() == null && request.isNavigationRequest() && request.frame().parentFrame() == null) {
+            startOrigin.compareAndSet(null, origin);
+        }
+        return origin != null && origin.equals(startOrigin.get());
+    }
+
+    private static String origin(String url) {
+        try {
+            var uri = URI.create(url);
+            if (uri.getHost() == null) {
+                return null;
+            }
+            return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void addTraceparent(Route route) {
+        var span = actionSpan;
+        synchronized (Tracer.class) {
+            if (span == null) {
+                span = pageSpan;
+            }
+        }
+        if (span == null) {
+            route.fallback();
+            return;
+        }
+        Map<String, String> headers = new LinkedHashMap<>(route.request().headers());
+        headers.put("traceparent", "00-" + span.traceId + "-" + span.spanId + "-01");
+        route.fallback(new Route.FallbackOptions().setHeaders(headers));
+    }
+
+    private static void unroute(AutoCloseable route) {
+        try {
+            route.close();
+        } catch (PlaywrightException e) {
+            // context already closed
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static synchronized void addShutdownHook(OtlpFileExporter exporter) {
+        if (!shutdownHookAdded) {
+            shutdownHookAdded = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                endPage();
+                exporter.flush();
+            }, "tracer-shutdown"));
+        }
+    }
+
+    private static String randomHex(int bytes) {
+        var hex = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i++) {
+            hex.append(String.format("%02x", ThreadLocalRandom.current().nextInt(256)));
+        }
+        return hex.toString();
+    }
+
+    private static long nowInNanos() {
+        var now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    private static class Span {
+        private final String name;
+        private final String traceId;
+        private final String spanId = randomHex(8);
+        private final String parentSpanId;
+        private final OtlpFileExporter exporter;
+        private final long start = nowInNanos();
+        private final List<Map<String, Object>> attributes = new ArrayList<>();
+
+        private Span(String name, String traceId, String parentSpanId, OtlpFileExporter exporter) {
+            this.name = name;
+            this.traceId = traceId;
+            this.parentSpanId = parentSpanId;
+            this.exporter = exporter;
+        }
+
+        private void end(Throwable error) {
+            if (exporter == null) {
+                return;
+            }
+            Map<String, Object> span = new LinkedHashMap<>();
+            span.put("traceId", traceId);
+            span.put("spanId", spanId);
+            if (parentSpanId != null) {
+                span.put("parentSpanId", parentSpanId);
+            }
+            span.put("name", name);
+            span.put("kind", KIND_INTERNAL);
+            span.put("startTimeUnixNano", String.valueOf(start));
+            span.put("endTimeUnixNano", String.valueOf(nowInNanos()));
+            span.put("attributes", attributes);
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("code", error == null ? STATUS_OK : STATUS_ERROR);
+            if (error != null) {
+                status.put("message", String.valueOf(error.getMessage()).split("\n")[0]);
+            }
+            span.put("status", status);
+            exporter.export(span);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Decides which recorded videos are kept. Videos of contexts in which no action or check failed are deleted, unless
+ * configured or requested otherwise, and the video folder is kept within a disk quota by deleting the oldest videos
+ * first. This is done on a background thread after the context is closed, however it is closed: by the fixture, or
+ * together with its browser. The test does not wait for videos to be written.
+ */
+public class VideoRetention {
+    private static final long FINALIZE_TIMEOUT = 30_000;
+    private static final long STABLE_INTERVAL = 500;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "playwright-video-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Path folder;
+    private long quotaInBytes;
+    private boolean keepPassing;
+
+    public void setFolder(Path folder) {
+        this.folder = folder;
+    }
+
+    public void setQuotaInMegabytes(long megabytes) {
+        quotaInBytes = megabytes * 1024 * 1024;
+    }
+
+    public void setKeepPassing(boolean keepPassing) {
+        this.keepPassing = keepPassing;
+    }
+
+    /**
+     * Starts tracking the outcome of a context, its videos are handled when it is closed.
+     *
+     * @param context context to track
+     * @return recording to register the videos and outcome of the context with
+     */
+    public Recording track(BrowserContext context) {
+        var recording = new Recording();
+        context.onClose(closed -> contextClosed(recording));
+        return recording;
+    }
+
+    /**
+     * Handles the videos of a closed context: waits for them to be written, deletes them when the context passed and
+     * evicts the oldest videos when the quota is exceeded.
+     */
+    private void contextClosed(Recording recording) {
+        List<Path> videos;
+        boolean keep;
+        synchronized (recording) {
+            videos = new ArrayList<>(recording.videos);
+            keep = recording.failed || recording.keep || keepPassing;
+        }
+        if (videos.isEmpty()) {
+            return;
+        }
+        executor.submit(() -> {
+            videos.forEach(VideoRetention::waitUntilWritten);
+            if (!keep) {
+                videos.forEach(VideoRetention::delete);
+            }
+            enforceQuota();
+        });
+    }
+
+    private void enforceQuota() {
+        if (quotaInBytes <= 0 || folder == null || !Files.isDirectory(folder)) {
+            return;
+        }
+        List<Path> oldestFirst;
+        try (Stream<Path> files = Files.list(folder)) {
+            oldestFirst = files.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparingLong(VideoRetention::lastModified))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            return;
+        }
+        var total = oldestFirst.stream().mapToLong(VideoRetention::size).sum();
+        for (Path video : oldestFirst) {
+            if (total <= quotaInBytes) {
+                break;
+            }
+            total -= size(video);
+            delete(video);
+        }
+    }
+
+    private static void waitUntilWritten(Path video) {
+        var deadline = System.currentTimeMillis() + FINALIZE_TIMEOUT;
+        var lastSize = -1L;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                var size = size(video);
+                if (size > 0 && size == lastSize) {
+                    return;
+                }
+                lastSize = size;
+                Thread.sleep(STABLE_INTERVAL);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // evicted on a next run
+        }
+    }
+
+    /**
+     * Videos and outcome of a single context.
+     */
+    public static class Recording {
+        private final List<Path> videos = new ArrayList<>();
+        private boolean failed;
+        private boolean keep;
+
+        public synchronized void addVideo(Path video) {
+            videos.add(video);
+        }
+
+        /**
+         * Marks the context as failed, so its videos are kept.
+         */
+        public synchronized void markFailed() {
+            failed = true;
+        }
+
+        /**
+         * Keeps the videos of the context, regardless of its outcome.
+         */
+        public synchronized void keep() {
+            keep = true;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Clock;
+
+/**
+ * Controls the clock of browser contexts, so timer driven behaviour (session expiry, debouncing, polling) can be
+ * tested without waiting for real time to pass. Once installed, the clock is installed in every new context as well,
+ * paused at the same time when it was paused.
+ * <p>
+ * Times are either milliseconds since epoch or a date string the browser can parse (e.g. 2024-02-02T08:00:00).
+ * Durations are either milliseconds or a string like "01:00" (minutes:seconds) or "02:30:00" (hours:minutes:seconds).
+ */
+public class VirtualClock {
+    private boolean installed;
+    private String installTime;
+    private String pausedAt;
+
+    public boolean isInstalled() {
+        return installed;
+    }
+
+    /**
+     * Installs a fake clock in a context.
+     *
+     * @param context context to install the clock in
+     * @param time    time to start the clock at, or null to start at the current time
+     */
+    public void install(BrowserContext context, String time) {
+        installed = true;
+        installTime = time;
+        pausedAt = null;
+        install(context);
+    }
+
+    /**
+     * Installs the clock in a new context, when a clock was installed earlier.
+     *
+     * @param context new context
+     */
+    public void applyTo(BrowserContext context) {
+        if (installed) {
+            install(context);
+            if (pausedAt != null) {
+                pauseAt(context.clock(), pausedAt);
+            }
+        }
+    }
+
+    /**
+     * Stops installing the clock in new contexts.
+     */
+    public void forget() {
+        installed = false;
+        installTime = null;
+        pausedAt = null;
+    }
+
+    public void fastForward(BrowserContext context, String duration) {
+        if (isNumber(duration)) {
+            context.clock().fastForward(Long.parseLong(duration));
+        } else {
+            context.clock().fastForward(duration);
+        }
+    }
+
+    public void runFor(BrowserContext context, String duration) {
+        if (isNumber(duration)) {
+            context.clock().runFor(Long.parseLong(duration));
+        } else {
+            context.clock().runFor(duration);
+        }
+    }
+
+    public void pauseAt(BrowserContext context, String time) {
+        pauseAt(context.clock(), time);
+        pausedAt = time;
+    }
+
+    public void resume(BrowserContext context) {
+        context.clock().resume();
+        pausedAt = null;
+    }
+
+    public void setFixedTime(BrowserContext context, String time) {
+        if (isNumber(time)) {
+            context.clock().setFixedTime(Long.parseLong(time));
+        } else {
+            context.clock().setFixedTime(time);
+        }
+    }
+
+    public void setSystemTime(BrowserContext context, String time) {
+        if (isNumber(time)) {
+            context.clock().setSystemTime(Long.parseLong(time));
+        } else {
+            context.clock().setSystemTime(time);
+        }
+    }
+
+    private void install(BrowserContext context) {
+        var options = new Clock.InstallOptions();
+        if (installTime != null) {
+            if (isNumber(installTime)) {
+                options.setTime(Long.parseLong(installTime));
+            } else {
+                options.setTime(installTime);
+            }
+        }
+        context.clock().install(options);
+    }
+
+    private static void pauseAt(Clock clock, String time) {
+        if (isNumber(time)) {
+            clock.pauseAt(Long.parseLong(time));
+        } else {
+            clock.pauseAt(time);
+        }
+    }
+
+    private static boolean isNumber(String value) {
+        return value.matches("\\d+");
+    }
+}
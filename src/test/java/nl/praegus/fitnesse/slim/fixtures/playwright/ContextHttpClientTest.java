@@ -0,0 +1,56 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContextHttpClientTest {
+
+    @Test
+    public void hostOnlyCookieIsNotSentToSubdomains() {
+        assertTrue(ContextHttpClient.matches("example.com", "/", false, "example.com", "/", false));
+        assertFalse(ContextHttpClient.matches("www.example.com", "/", false, "example.com", "/", false));
+    }
+
+    @Test
+    public void domainCookieIsSentToDomainAndSubdomains() {
+        assertTrue(ContextHttpClient.matches("example.com", "/", false, ".example.com", "/", false));
+        assertTrue(ContextHttpClient.matches("www.example.com", "/", false, ".example.com", "/", false));
+        assertFalse(ContextHttpClient.matches("badexample.com", "/", false, ".example.com", "/", false));
+    }
+
+    @Test
+    public void pathMatchesOnlyAtSegmentBoundary() {
+        assertTrue(ContextHttpClient.matches("example.com", "/docs", false, "example.com", "/docs", false));
+        assertTrue(ContextHttpClient.matches("example.com", "/docs/page", false, "example.com", "/docs", false));
+        assertTrue(ContextHttpClient.matches("example.com", "/docs/page", false, "example.com", "/docs/", false));
+        assertFalse(ContextHttpClient.matches("example.com", "/docsearch", false, "example.com", "/docs", false));
+        assertFalse(ContextHttpClient.matches("example.com", "/", false, "example.com", "/docs", false));
+    }
+
+    @Test
+    public void secureCookieIsOnlySentOverHttps() {
+        assertFalse(ContextHttpClient.matches("example.com", "/", false, "example.com", "/", true));
+        assertTrue(ContextHttpClient.matches("example.com", "/", true, "example.com", "/", true));
+    }
+
+    @Test
+    public void responseCookieWithoutDomainIsHostOnly() {
+        var cookie = ContextHttpClient.parseCookies("id=1", URI.create("http://www.example.com/app/login")).get(0);
+
+        assertEquals("www.example.com", cookie.getDomain());
+        assertEquals("/app", cookie.getPath());
+    }
+
+    @Test
+    public void responseCookieWithDomainMatchesSubdomains() {
+        var cookie = ContextHttpClient.parseCookies("id=1; Domain=example.com; Path=/", URI.create("http://www.example.com/")).get(0);
+
+        assertEquals(".example.com", cookie.getDomain());
+        assertTrue(ContextHttpClient.matches("api.example.com", "/", false, cookie.getDomain(), cookie.getPath(), false));
+    }
+}
@@ -0,0 +1,246 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadTestSchedulerTest {
+    private static final long SERVER_DELAY = 50;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<ExecutorService> lanes = new ArrayList<>();
+    private HttpServer server;
+    private ExecutorService serverThreads;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/page", exchange -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(SERVER_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+            var body = "<html><body>ok</body></html>".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/error", exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        lanes.forEach(ExecutorService::shutdownNow);
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void usersOnDifferentLanesRunConcurrently() throws Exception {
+        var statistics = new LoadTestStatistics();
+        var scheduler = new LoadTestScheduler(statistics, List.of("page", "error"));
+        scheduler.setIterations(5);
+        List<Integer> closedOnLane = Collections.synchronizedList(new ArrayList<>());
+
+        scheduler.run(8, lanes(4), lane -> new RequestSession(List.of("page", "error"), () -> closedOnLane.add(lane)));
+
+        var summary = statistics.summary();
+        assertTrue(summary.get("page").startsWith("40 executions, 0.0% errors"), summary.get("page"));
+        assertTrue(summary.get("error").startsWith("40 executions, 100.0% errors"), summary.get("error"));
+        assertTrue(statistics.latencyPercentile(99) >= SERVER_DELAY);
+        assertEquals(8, closedOnLane.size());
+        assertTrue(maxActive.get() > 1, "steps of users on different lanes did not overlap");
+        assertTrue(maxActive.get() <= 4, "more steps executing than lanes: " + maxActive.get());
+    }
+
+    @Test
+    public void usersOnOneLaneExecuteOneStepAtATime() throws Exception {
+        var statistics = new LoadTestStatistics();
+        var scheduler = new LoadTestScheduler(statistics, List.of("page"));
+        scheduler.setIterations(3);
+
+        scheduler.run(4, lanes(1), lane -> new RequestSession(List.of("page"), () -> { }));
+
+        assertTrue(statistics.summary().get("page").startsWith("12 executions"), statistics.summary().get("page"));
+        assertEquals(1, maxActive.get());
+    }
+
+    @Test
+    public void startOfUsersIsSpreadOverRampUp() throws Exception {
+        var statistics = new LoadTestStatistics();
+        var scheduler = new LoadTestScheduler(statistics, List.of("page"));
+        scheduler.setRampUpMillis(400);
+        Map<Integer, Long> starts = new ConcurrentHashMap<>();
+        var users = new AtomicInteger();
+        var runStart = System.currentTimeMillis();
+
+        scheduler.run(5, lanes(5), lane -> {
+            starts.put(users.getAndIncrement(), System.currentTimeMillis() - runStart);
+            return new RequestSession(List.of("page"), () -> { });
+        });
+
+        var sorted = new ArrayList<>(starts.values());
+        Collections.sort(sorted);
+        assertEquals(5, sorted.size());
+        assertTrue(sorted.get(0) < 100, "first user started after " + sorted.get(0) + " ms");
+        assertTrue(sorted.get(4) >= 400, "last user started after " + sorted.get(4) + " ms");
+        for (int i = 1; i < sorted.size(); i++) {
+            assertTrue(sorted.get(i) - sorted.get(i - 1) >= 50, "users started " + sorted + " ms after the run");
+        }
+    }
+
+    @Test
+    public void thinkTimeSeparatesStepsAndPacingSeparatesIterations() throws Exception {
+        var statistics = new LoadTestStatistics();
+        var scheduler = new LoadTestScheduler(statistics, List.of("first", "second"));
+        scheduler.setThinkTimeMillis(100);
+        scheduler.setPacingMillis(500);
+        scheduler.setIterations(2);
+        List<Long> stepStarts = Collections.synchronizedList(new ArrayList<>());
+        List<Long> stepEnds = Collections.synchronizedList(new ArrayList<>());
+
+        scheduler.run(1, lanes(1), lane -> new LoadTestScheduler.Session() {
+            @Override
+            public void execute(int step) {
+                stepStarts.add(System.currentTimeMillis());
+                request("page");
+                stepEnds.add(System.currentTimeMillis());
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        assertEquals(4, stepStarts.size());
+        assertTrue(stepStarts.get(1) - stepEnds.get(0) >= 100, "think time between steps");
+        assertTrue(stepStarts.get(3) - stepEnds.get(2) >= 100, "think time between steps");
+        assertTrue(stepStarts.get(2) - stepStarts.get(0) >= 500, "pacing between iterations");
+        assertEquals(0.0, statistics.errorRate(), 0.001);
+    }
+
+    @Test
+    public void failingStepEndsIteration() throws Exception {
+        var statistics = new LoadTestStatistics();
+        statistics.addStep("error");
+        statistics.addStep("page");
+        var scheduler = new LoadTestScheduler(statistics, List.of("error", "page"));
+        scheduler.setIterations(3);
+
+        scheduler.run(2, lanes(2), lane -> new RequestSession(List.of("error", "page"), () -> { }));
+
+        assertTrue(statistics.summary().get("error").startsWith("6 executions, 100.0% errors"), statistics.summary().get("error"));
+        assertTrue(statistics.summary().get("page").startsWith("0 executions"), statistics.summary().get("page"));
+    }
+
+    @Test
+    public void noStepsStartAfterMaxDuration() throws Exception {
+        var statistics = new LoadTestStatistics();
+        var scheduler = new LoadTestScheduler(statistics, List.of("page"));
+        scheduler.setIterations(Integer.MAX_VALUE);
+        scheduler.setThinkTimeMillis(50);
+        scheduler.setMaxDurationMillis(500);
+        var start = System.currentTimeMillis();
+
+        scheduler.run(2, lanes(2), lane -> new RequestSession(List.of("page"), () -> { }));
+
+        var duration = System.currentTimeMillis() - start;
+        assertTrue(duration >= 500 && duration < 2000, "run took " + duration + " ms");
+        assertEquals(0.0, statistics.errorRate(), 0.001);
+    }
+
+    @Test
+    public void runEndsWhenUsersCannotStartOrLanesAreGone() throws Exception {
+        var statistics = new LoadTestStatistics();
+        var scheduler = new LoadTestScheduler(statistics, List.of("page"));
+        var lanes = lanes(2);
+        lanes.get(1).shutdown();
+
+        scheduler.run(4, lanes, lane -> {
+            throw new AssertionError("no session");
+        });
+
+        var summary = statistics.summary();
+        assertTrue(summary.get(LoadTestScheduler.START_LABEL).startsWith("2 executions, 100.0% errors"), summary.toString());
+        assertTrue(summary.get(LoadTestScheduler.USER_LABEL).startsWith("2 executions, 100.0% errors"), summary.toString());
+    }
+
+    private List<ExecutorService> lanes(int count) {
+        List<ExecutorService> created = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            created.add(Executors.newSingleThreadExecutor());
+        }
+        lanes.addAll(created);
+        return created;
+    }
+
+    private void request(String path) {
+        try {
+            var response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getAddress().getPort() + "/" + path)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("status " + response.statusCode());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Session requesting a path of the stub server per step.
+     */
+    private class RequestSession implements LoadTestScheduler.Session {
+        private final List<String> paths;
+        private final Runnable onClose;
+
+        private RequestSession(List<String> paths, Runnable onClose) {
+            this.paths = paths;
+            this.onClose = onClose;
+        }
+
+        @Override
+        public void execute(int step) {
+            request(paths.get(step));
+        }
+
+        @Override
+        public void close() {
+            onClose.run();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package nl.praegus.fitnesse.slim.fixtures.playwright;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadTestStatisticsTest {
+
+    @Test
+    public void percentilesUseNearestRank() {
+        var statistics = new LoadTestStatistics();
+        for (long latency = 100; latency >= 1; latency--) {
+            statistics.recordSuccess("step", latency);
+        }
+
+        assertEquals(1, statistics.latencyPercentile(0));
+        assertEquals(50, statistics.latencyPercentile(50));
+        assertEquals(90, statistics.latencyPercentile(90));
+        assertEquals(95, statistics.latencyPercentile(95));
+        assertEquals(99, statistics.latencyPercentile(99));
+        assertEquals(100, statistics.latencyPercentile(100));
+        assertEquals(0.0, statistics.errorRate(), 0.001);
+    }
+
+    @Test
+    public void withoutExecutionsPercentileIsUnknown() {
+        var statistics = new LoadTestStatistics();
+        statistics.addStep("step");
+
+        assertEquals(-1, statistics.latencyPercentile(95));
+        assertEquals(0.0, statistics.errorRate(), 0.001);
+    }
+
+    @Test
+    public void errorRatesDoNotDependOnTheDefaultLocale() throws IOException {
+        var defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("nl", "NL"));
+        var report = Files.createTempFile("load-test", ".tsv");
+        try {
+            var statistics = new LoadTestStatistics();
+            statistics.recordSuccess("step", 10);
+            statistics.recordError("step", 20, new IllegalStateException("failed"));
+            statistics.recordSuccess("step", 30);
+
+            assertTrue(statistics.summary().get("step").startsWith("3 executions, 33.3% errors"), statistics.summary().get("step"));
+            statistics.writeReport(report);
+            var lines = Files.readAllLines(report);
+            assertEquals("33.3", lines.get(1).split("\t")[3]);
+            assertEquals("33.3", lines.get(2).split("\t")[3]);
+        } finally {
+            Locale.setDefault(defaultLocale);
+            Files.delete(report);
+        }
+    }
+
+    @Test
+    public void clearRemovesStepsAndLatencies() throws IOException {
+        var statistics = new LoadTestStatistics();
+        statistics.recordSuccess("step", 10);
+        statistics.recordError("step", 20, new IllegalStateException("failed"));
+
+        statistics.clear();
+
+        assertEquals(-1, statistics.latencyPercentile(50));
+        assertTrue(statistics.summary().isEmpty());
+        var report = Files.createTempFile("load-test", ".tsv");
+        try {
+            statistics.writeReport(report);
+            assertEquals(2, Files.readAllLines(report).size());
+        } finally {
+            Files.delete(report);
+        }
+    }
+}